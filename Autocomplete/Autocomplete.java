@@ -1,87 +1,294 @@
 import edu.princeton.cs.algs4.StdOut;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-public class Autocomplete {
+// An Autocomplete never changes after construction, and none of its engines
+// keep per-query state, so any number of threads may query one concurrently.
+public class Autocomplete implements AutocompleteEngine {
+
+    // Batches are split into fork-join tasks of at most this many prefixes
+    private static final int BATCH_THRESHOLD = 256;
+
+    // The search structures that can back an Autocomplete.
+    public enum Engine {
+        SORTED_ARRAY,        // sorted Term[] searched with BinarySearchDeluxe
+        TERNARY_SEARCH_TREE, // ternary search tree with per-node weight and count summaries
+        COMPACT              // one UTF-8 byte array with parallel offset and weight arrays
+    }
+
+    private final AutocompleteEngine engine;
 
-    private final Term[] terms;
     public Autocomplete(Term[] terms) {
+        this(terms, Engine.SORTED_ARRAY);
+    }
+
+    public Autocomplete(Term[] terms, Engine engine) {
+        if (terms == null) {
+            throw new IllegalArgumentException("Terms array cannot be null.");
+        }
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine cannot be null.");
+        }
+        Term[] copy = new Term[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i] == null) {
+                throw new IllegalArgumentException("Term at index " + i + " is null.");
+            }
+            copy[i] = terms[i];
+        }
+
+        switch (engine) {
+            case TERNARY_SEARCH_TREE:
+                this.engine = new WeightedTST(copy);
+                break;
+            case COMPACT:
+                this.engine = new CompactTermStore(copy);
+                break;
+            case SORTED_ARRAY:
+            default:
+                this.engine = new SortedArrayEngine(copy);
+                break;
+        }
+    }
+
+    private Autocomplete(AutocompleteEngine engine) {
+        this.engine = engine;
+    }
+
+    // Builds a compact index of the given terms and writes it to a file,
+    // so later processes can start instantly with open(Path).
+    public static void buildIndex(Term[] terms, Path path) throws IOException {
         if (terms == null) {
             throw new IllegalArgumentException("Terms array cannot be null.");
         }
-        this.terms = new Term[terms.length];
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null.");
+        }
+        Term[] copy = new Term[terms.length];
         for (int i = 0; i < terms.length; i++) {
             if (terms[i] == null) {
                 throw new IllegalArgumentException("Term at index " + i + " is null.");
             }
-            this.terms[i] = terms[i];
+            copy[i] = terms[i];
         }
-        // Sort the array in natural (lexicographic) order
-        Arrays.sort(this.terms);
+        new CompactTermStore(copy).write(path);
+    }
+
+    // Opens an index file written by buildIndex(Term[], Path) by memory-mapping
+    // it. Nothing is read or sorted up front, and the mapped pages are shared
+    // between every process that opens the same file.
+    public static Autocomplete open(Path path) throws IOException {
+        return new Autocomplete(CompactTermStore.open(path));
     }
 
+    @Override
     public Term[] allMatches(String prefix) {
         if (prefix == null) {
             throw new IllegalArgumentException("Prefix cannot be null.");
         }
-        if (prefix.isEmpty()) {
-            // If prefix is empty, all terms match
-            Term[] allTerms = Arrays.copyOf(this.terms, this.terms.length);
-            Arrays.sort(allTerms, Term.byReverseWeightOrder());
-            return allTerms;
+        return engine.allMatches(prefix);
+    }
+
+    @Override
+    public int numberOfMatches(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null.");
         }
+        return engine.numberOfMatches(prefix);
+    }
 
-        int prefixLength = prefix.length();
-        Term key = new Term(prefix, 0); // Weight is irrelevant for comparison
+    // Returns the k heaviest terms that start with the given prefix, in descending
+    // order of weight, without copying or sorting the whole matching range.
+    @Override
+    public Term[] topMatches(String prefix, int k) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null.");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        return engine.topMatches(prefix, k);
+    }
 
-        // Comparator that compares terms based on prefix
-        Comparator<Term> prefixComparator = Term.byPrefixOrder(prefixLength);
+    // Returns allMatches(prefix) for every prefix in the list, in list order.
+    public List<Term[]> allMatches(List<String> prefixes) {
+        if (prefixes == null) {
+            throw new IllegalArgumentException("Prefixes cannot be null.");
+        }
+        return new ArrayList<>(Arrays.asList(batch(prefixes.toArray(new String[0]), -1)));
+    }
 
-        // Find the first and last index of terms matching the prefix
-        int firstIndex = BinarySearchDeluxe.firstIndexOf(this.terms, key, prefixComparator);
-        if (firstIndex == -1) {
-            // No matches found
-            return new Term[0];
+    // Returns topMatches(prefix, k) for every prefix in the array, in array order.
+    public Term[][] topMatches(String[] prefixes, int k) {
+        if (prefixes == null) {
+            throw new IllegalArgumentException("Prefixes cannot be null.");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
         }
-        int lastIndex = BinarySearchDeluxe.lastIndexOf(this.terms, key, prefixComparator);
+        return batch(prefixes, k);
+    }
 
-        // Number of matching terms
-        int numberOfMatches = lastIndex - firstIndex + 1;
-        Term[] matches = new Term[numberOfMatches];
-        for (int i = 0; i < numberOfMatches; i++) {
-            matches[i] = this.terms[firstIndex + i];
+    // Answers a batch of queries on the common fork-join pool; k < 0 asks for all matches.
+    // The prefixes are sorted first, so that with a sorted engine each search only
+    // covers what the previous prefixes in the same task have not ruled out.
+    private Term[][] batch(String[] prefixes, int k) {
+        for (int i = 0; i < prefixes.length; i++) {
+            if (prefixes[i] == null) {
+                throw new IllegalArgumentException("Prefix at index " + i + " is null.");
+            }
         }
 
-        // Sort the matching terms in descending order of weight
-        Arrays.sort(matches, Term.byReverseWeightOrder());
+        int[] order = new int[prefixes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (engine instanceof SortedTermIndex) {
+            new PrefixOrder(prefixes, ((SortedTermIndex) engine).queryOrder()).sort(order, 0, order.length);
+        }
 
-        return matches;
+        Term[][] results = new Term[prefixes.length][];
+        ForkJoinPool.commonPool().invoke(new BatchTask(prefixes, order, 0, order.length, k, results));
+        return results;
     }
 
-    public int numberOfMatches(String prefix) {
-        if (prefix == null) {
-            throw new IllegalArgumentException("Prefix cannot be null.");
+    // Sorts positions in a batch by their prefixes, as plain ints so that no
+    // position is boxed
+    private static final class PrefixOrder {
+        private final String[] prefixes;
+        private final Comparator<String> queryOrder;
+
+        PrefixOrder(String[] prefixes, Comparator<String> queryOrder) {
+            this.prefixes = prefixes;
+            this.queryOrder = queryOrder;
         }
-        if (prefix.isEmpty()) {
-            // All terms match
-            return this.terms.length;
+
+        int compare(int i, int j) {
+            return queryOrder.compare(prefixes[i], prefixes[j]);
         }
 
-        int prefixLength = prefix.length();
-        Term key = new Term(prefix, 0); // Weight is irrelevant for comparison
+        // Sorts order[lo, hi) with a three-way quicksort, recursing into the
+        // smaller side so the stack stays logarithmic, and insertion sort on
+        // short ranges
+        void sort(int[] order, int lo, int hi) {
+            while (hi - lo > 16) {
+                int pivot = medianOfThree(order[lo], order[lo + (hi - lo) / 2], order[hi - 1]);
+                int lt = lo;
+                int gt = hi;
+                int i = lo;
+                while (i < gt) {
+                    int cmp = compare(order[i], pivot);
+                    if (cmp < 0) {
+                        swap(order, lt++, i++);
+                    } else if (cmp > 0) {
+                        swap(order, i, --gt);
+                    } else {
+                        i++;
+                    }
+                }
+                if (lt - lo < hi - gt) {
+                    sort(order, lo, lt);
+                    lo = gt;
+                } else {
+                    sort(order, gt, hi);
+                    hi = lt;
+                }
+            }
+            for (int i = lo + 1; i < hi; i++) {
+                int o = order[i];
+                int j = i;
+                while (j > lo && compare(order[j - 1], o) > 0) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = o;
+            }
+        }
+
+        private int medianOfThree(int a, int b, int c) {
+            if (compare(a, b) > 0) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            if (compare(b, c) <= 0) {
+                return b;
+            }
+            return compare(a, c) > 0 ? a : c;
+        }
+
+        private static void swap(int[] order, int i, int j) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+    }
 
-        // Comparator that compares terms based on prefix
-        Comparator<Term> prefixComparator = Term.byPrefixOrder(prefixLength);
+    private class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final String[] prefixes;
+        private final int[] order;
+        private final int from, to;
+        private final int k;
+        private final Term[][] results;
 
-        // Find the first and last index of terms matching the prefix
-        int firstIndex = BinarySearchDeluxe.firstIndexOf(this.terms, key, prefixComparator);
-        if (firstIndex == -1) {
-            // No matches found
-            return 0;
+        BatchTask(String[] prefixes, int[] order, int from, int to, int k, Term[][] results) {
+            this.prefixes = prefixes;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.results = results;
         }
-        int lastIndex = BinarySearchDeluxe.lastIndexOf(this.terms, key, prefixComparator);
 
-        return lastIndex - firstIndex + 1;
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_THRESHOLD) {
+                int mid = from + (to - from) / 2;
+                invokeAll(new BatchTask(prefixes, order, from, mid, k, results),
+                          new BatchTask(prefixes, order, mid, to, k, results));
+            } else if (engine instanceof SortedTermIndex) {
+                computeSorted((SortedTermIndex) engine);
+            } else {
+                for (int i = from; i < to; i++) {
+                    String prefix = prefixes[order[i]];
+                    results[order[i]] = k < 0 ? engine.allMatches(prefix) : engine.topMatches(prefix, k);
+                }
+            }
+        }
+
+        // Walks the sorted prefixes keeping a stack of the earlier prefixes that the
+        // current one extends. Its matches lie inside the innermost such prefix's
+        // range, and start no earlier than the previous prefix's first match.
+        private void computeSorted(SortedTermIndex index) {
+            String[] stackPrefix = new String[to - from];
+            int[] stackEnd = new int[to - from];
+            int depth = 0;
+            int lo = 0;
+
+            for (int i = from; i < to; i++) {
+                String prefix = prefixes[order[i]];
+                while (depth > 0 && !prefix.startsWith(stackPrefix[depth - 1])) {
+                    depth--;
+                }
+                int hi = depth > 0 ? stackEnd[depth - 1] : index.size();
+
+                int[] range = index.matchRange(prefix, lo, hi);
+                results[order[i]] = k < 0 ? index.allMatches(range[0], range[1])
+                                          : index.topMatches(range[0], range[1], k);
+
+                lo = range[0];
+                stackPrefix[depth] = prefix;
+                stackEnd[depth] = range[1];
+                depth++;
+            }
+        }
     }
 
     public static void main(String[] args) {
@@ -114,6 +321,12 @@ public class Autocomplete {
         // Test numberOfMatches
         StdOut.println("\nNumber of matches for prefix \"" + prefix1 + "\": " + autocomplete.numberOfMatches(prefix1));
 
+        // Test topMatches
+        StdOut.println("\nTop 2 matches for prefix \"" + prefix1 + "\":");
+        for (Term term : autocomplete.topMatches(prefix1, 2)) {
+            StdOut.println(term); // Expected: 120 application, 100 apple
+        }
+
         // Another test case
         String prefix2 = "ban";
         StdOut.println("\nAll matches for prefix \"" + prefix2 + "\":");
@@ -143,5 +356,55 @@ public class Autocomplete {
         }
 
         StdOut.println("\nNumber of matches for prefix \"" + prefix4 + "\": " + autocomplete.numberOfMatches(prefix4));
+
+        // Same queries against the ternary search tree engine
+        Autocomplete tst = new Autocomplete(terms, Engine.TERNARY_SEARCH_TREE);
+        StdOut.println("\nTST matches for prefix \"" + prefix1 + "\":");
+        for (Term term : tst.allMatches(prefix1)) {
+            StdOut.println(term);
+        }
+        StdOut.println("\nTST number of matches for prefix \"" + prefix2 + "\": " + tst.numberOfMatches(prefix2));
+
+        // A prefix ending inside a surrogate pair must not hide later prefixes' matches in a batch
+        Autocomplete compact = new Autocomplete(new Term[] { new Term("x\uE000", 1), new Term("x\uD83D\uDE00", 2) },
+                                                Engine.COMPACT);
+        List<Term[]> surrogates = compact.allMatches(Arrays.asList("x\uD83D", "x\uE000"));
+        StdOut.println("\nCompact batch matches: " + surrogates.get(0).length + " and "
+                       + surrogates.get(1).length); // Expected: 1 and 1
+
+        // Batch queries from several threads at once must agree with serial queries
+        final String[] batch = { "ap", "b", "app", "xyz", "", "appl", "ban", "a", "apple" };
+        final Autocomplete shared = autocomplete;
+        final boolean[] agrees = new boolean[4];
+        Thread[] readers = new Thread[agrees.length];
+        for (int t = 0; t < readers.length; t++) {
+            final int id = t;
+            readers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    boolean ok = true;
+                    for (int round = 0; round < 1000; round++) {
+                        Term[][] top = shared.topMatches(batch, 3);
+                        List<Term[]> all = shared.allMatches(Arrays.asList(batch));
+                        for (int i = 0; i < batch.length; i++) {
+                            ok &= Arrays.equals(top[i], shared.topMatches(batch[i], 3));
+                            ok &= Arrays.equals(all.get(i), shared.allMatches(batch[i]));
+                        }
+                    }
+                    agrees[id] = ok;
+                }
+            });
+            readers[t].start();
+        }
+        boolean allAgree = true;
+        for (int t = 0; t < readers.length; t++) {
+            try {
+                readers[t].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            allAgree &= agrees[t];
+        }
+        StdOut.println("\nConcurrent batch queries agree with serial queries: " + allAgree); // Expected: true
     }
 }
@@ -0,0 +1,23 @@
+// A search structure that answers prefix queries over a fixed set of terms.
+// Arguments are validated by Autocomplete before they reach an engine.
+// Autocomplete itself implements this interface too, so wrappers such as
+// CachingAutocomplete can sit in front of either.
+public interface AutocompleteEngine {
+
+    // Returns all terms that start with the given prefix,
+    // in descending order of weight.
+    Term[] allMatches(String prefix);
+
+    // Returns the number of terms that start with the given prefix.
+    int numberOfMatches(String prefix);
+
+    // Returns the k heaviest terms that start with the given prefix,
+    // in descending order of weight.
+    Term[] topMatches(String prefix, int k);
+
+    // Returns a number that changes whenever the set of terms or their weights
+    // change, so callers can tell when cached results have gone stale.
+    default long version() {
+        return 0;
+    }
+}
@@ -81,6 +81,216 @@ public class BinarySearchDeluxe {
         return result;
     }
 
+    // Returns {first, end}, where [first, end) holds every element equal to the key
+    // and first is where the key would be inserted if there is none. Both bounds
+    // come from one descent that only splits once it hits an equal element.
+    public static <Key> int[] equalRange(Key[] a, Key key, Comparator<Key> comparator) {
+        if (a == null) {
+            throw new IllegalArgumentException("Array cannot be null.");
+        }
+        return equalRange(a, key, comparator, 0, a.length);
+    }
+
+    // Same as equalRange(a, key, comparator), but only searches the window [lo, hi).
+    // When refining a search, passing the previous result range as the window
+    // skips everything already ruled out.
+    public static <Key> int[] equalRange(Key[] a, Key key, Comparator<Key> comparator, int lo, int hi) {
+        // Edge cases
+        if (a == null) {
+            throw new IllegalArgumentException("Array cannot be null.");
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null.");
+        }
+        validateWindow(a.length, lo, hi);
+
+        int low = lo;
+        int high = hi;
+        while (low < high) {
+            int mid = low + (high - low) / 2;
+            int cmp = comparator.compare(key, checkedAt(a, mid));
+
+            if (cmp < 0) {
+                high = mid; // Search left half
+            } else if (cmp > 0) {
+                low = mid + 1; // Search right half
+            } else {
+                // The paths diverge: the first match is in [low, mid],
+                // and the end of the matches is in [mid + 1, high]
+                int firstLow = low;
+                int firstHigh = mid;
+                while (firstLow < firstHigh) {
+                    int m = firstLow + (firstHigh - firstLow) / 2;
+                    if (comparator.compare(key, checkedAt(a, m)) > 0) {
+                        firstLow = m + 1;
+                    } else {
+                        firstHigh = m;
+                    }
+                }
+                int endLow = mid + 1;
+                int endHigh = high;
+                while (endLow < endHigh) {
+                    int m = endLow + (endHigh - endLow) / 2;
+                    if (comparator.compare(key, checkedAt(a, m)) < 0) {
+                        endHigh = m;
+                    } else {
+                        endLow = m + 1;
+                    }
+                }
+                return new int[] { firstLow, endLow };
+            }
+        }
+        return new int[] { low, low };
+    }
+
+    // Returns {first, end}, where [first, end) holds every term in [lo, hi) whose
+    // query starts with the given prefix, found in a single shared descent. The
+    // array must be sorted in natural order.
+    public static int[] equalRangeOfPrefix(Term[] a, String prefix, int lo, int hi) {
+        validatePrefixArguments(a, prefix);
+        validateWindow(a.length, lo, hi);
+
+        int low = lo;
+        int high = hi;
+        while (low < high) {
+            int mid = low + (high - low) / 2;
+            int cmp = Term.comparePrefix(prefix, checkedAt(a, mid));
+
+            if (cmp < 0) {
+                high = mid; // Search left half
+            } else if (cmp > 0) {
+                low = mid + 1; // Search right half
+            } else {
+                // The paths diverge: the first match is in [low, mid],
+                // and the end of the matches is in [mid + 1, high]
+                int firstLow = low;
+                int firstHigh = mid;
+                while (firstLow < firstHigh) {
+                    int m = firstLow + (firstHigh - firstLow) / 2;
+                    if (Term.comparePrefix(prefix, checkedAt(a, m)) > 0) {
+                        firstLow = m + 1;
+                    } else {
+                        firstHigh = m;
+                    }
+                }
+                int endLow = mid + 1;
+                int endHigh = high;
+                while (endLow < endHigh) {
+                    int m = endLow + (endHigh - endLow) / 2;
+                    if (Term.comparePrefix(prefix, checkedAt(a, m)) < 0) {
+                        endHigh = m;
+                    } else {
+                        endLow = m + 1;
+                    }
+                }
+                return new int[] { firstLow, endLow };
+            }
+        }
+        return new int[] { low, low };
+    }
+
+    private static <Key> Key checkedAt(Key[] a, int i) {
+        Key value = a[i];
+        if (value == null) {
+            throw new IllegalArgumentException("Array contains null elements.");
+        }
+        return value;
+    }
+
+    private static void validateWindow(int length, int lo, int hi) {
+        if (lo < 0 || hi > length || lo > hi) {
+            throw new IllegalArgumentException("Invalid window [" + lo + ", " + hi + ")");
+        }
+    }
+
+    // Returns the index of the first term whose query starts with the given prefix,
+    // or -1 if there is none. The array must be sorted in natural order.
+    public static int firstIndexOfPrefix(Term[] a, String prefix) {
+        validatePrefixArguments(a, prefix);
+        return firstIndexOfPrefix(a, prefix, 0, a.length);
+    }
+
+    // Same as firstIndexOfPrefix(a, prefix), but only searches the window [lo, hi).
+    public static int firstIndexOfPrefix(Term[] a, String prefix, int lo, int hi) {
+        validatePrefixArguments(a, prefix);
+        validateWindow(a.length, lo, hi);
+
+        int low = lo;
+        int high = hi - 1;
+        int result = -1;
+
+        while (low <= high) {
+            int mid = low + (high - low) / 2;
+
+            Term midVal = a[mid];
+            if (midVal == null) {
+                throw new IllegalArgumentException("Array contains null elements.");
+            }
+
+            int cmp = Term.comparePrefix(prefix, midVal);
+
+            if (cmp < 0) {
+                high = mid - 1; // Search left half
+            } else if (cmp > 0) {
+                low = mid + 1; // Search right half
+            } else {
+                result = mid;
+                high = mid - 1; // Continue searching left half for first occurrence
+            }
+        }
+        return result;
+    }
+
+    // Returns the index of the last term whose query starts with the given prefix,
+    // or -1 if there is none. The array must be sorted in natural order.
+    public static int lastIndexOfPrefix(Term[] a, String prefix) {
+        validatePrefixArguments(a, prefix);
+        return lastIndexOfPrefix(a, prefix, 0, a.length);
+    }
+
+    // Same as lastIndexOfPrefix(a, prefix), but only searches the window [lo, hi).
+    public static int lastIndexOfPrefix(Term[] a, String prefix, int lo, int hi) {
+        validatePrefixArguments(a, prefix);
+        validateWindow(a.length, lo, hi);
+
+        int low = lo;
+        int high = hi - 1;
+        int result = -1;
+
+        while (low <= high) {
+            int mid = low + (high - low) / 2;
+
+            Term midVal = a[mid];
+            if (midVal == null) {
+                throw new IllegalArgumentException("Array contains null elements.");
+            }
+
+            int cmp = Term.comparePrefix(prefix, midVal);
+
+            if (cmp < 0) {
+                high = mid - 1; // Search left half
+            } else if (cmp > 0) {
+                low = mid + 1; // Search right half
+            } else {
+                result = mid;
+                low = mid + 1; // Continue searching right half for last occurrence
+            }
+        }
+        return result;
+    }
+
+    private static void validatePrefixArguments(Term[] a, String prefix) {
+        if (a == null) {
+            throw new IllegalArgumentException("Array cannot be null.");
+        }
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null.");
+        }
+    }
+
     public static void main(String[] args) {
         // Example with Strings
         String[] a = { "A", "A", "A", "A", "A", "A", "Z", "Z", "Z", "Z" };
@@ -111,6 +321,18 @@ public class BinarySearchDeluxe {
         StdOut.println("First index of prefix 'AA': " + indexTermFirst); // Expected: 0
         StdOut.println("Last index of prefix 'AA': " + indexTermLast);   // Expected: 9
 
+        // Same search using the raw prefix instead of a key term
+        StdOut.println("First index of prefix 'AAB': " + BinarySearchDeluxe.firstIndexOfPrefix(termList, "AAB")); // Expected: 3
+        StdOut.println("Last index of prefix 'AAB': " + BinarySearchDeluxe.lastIndexOfPrefix(termList, "AAB"));   // Expected: 5
+
+        // Both bounds in one descent, then refined within the previous range
+        int[] rangeA = BinarySearchDeluxe.equalRangeOfPrefix(termList, "AA", 0, termList.length);
+        int[] rangeAAB = BinarySearchDeluxe.equalRangeOfPrefix(termList, "AAB", rangeA[0], rangeA[1]);
+        StdOut.println("Range of prefix 'AA': [" + rangeA[0] + ", " + rangeA[1] + ")");       // Expected: [0, 10)
+        StdOut.println("Range of prefix 'AAB': [" + rangeAAB[0] + ", " + rangeAAB[1] + ")"); // Expected: [3, 6)
+        int[] rangeZ = BinarySearchDeluxe.equalRange(a, "Z", comparator);
+        StdOut.println("Range of 'Z': [" + rangeZ[0] + ", " + rangeZ[1] + ")");               // Expected: [6, 10)
+
         // Testing with null elements in the array (should throw IllegalArgumentException)
         try {
             String[] arrayWithNull = { "A", null, "B" };
@@ -0,0 +1,196 @@
+import edu.princeton.cs.algs4.StdOut;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A bounded least-recently-used cache of query results in front of another
+// engine, keyed by prefix and k. Safe for concurrent use. The whole cache is
+// dropped as soon as the source's version() changes, so it never serves
+// results from an older set of terms.
+public class CachingAutocomplete implements AutocompleteEngine {
+
+    // Values of Key.k for the queries that take no k
+    private static final int ALL_MATCHES = -1;
+    private static final int NUMBER_OF_MATCHES = -2;
+
+    private static final class Key {
+        private final String prefix;
+        private final int k;
+
+        Key(String prefix, int k) {
+            this.prefix = prefix;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key that = (Key) other;
+            return this.k == that.k && this.prefix.equals(that.prefix);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * prefix.hashCode() + k;
+        }
+    }
+
+    private final AutocompleteEngine source;
+    private final int capacity;
+    private final LinkedHashMap<Key, Object> entries; // guarded by itself
+    private long cachedVersion;                        // guarded by entries
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingAutocomplete(AutocompleteEngine source, int capacity) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source cannot be null.");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.source = source;
+        this.capacity = capacity;
+        this.cachedVersion = source.version();
+        this.entries = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                if (size() > CachingAutocomplete.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Returns the cached value for the key, or null on a miss. Drops every
+    // entry first if the source has changed since they were cached.
+    private Object lookup(Key key, long version) {
+        synchronized (entries) {
+            if (version != cachedVersion) {
+                if (!entries.isEmpty()) {
+                    invalidations.incrementAndGet();
+                }
+                entries.clear();
+                cachedVersion = version;
+            }
+            Object value = entries.get(key);
+            if (value != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+            return value;
+        }
+    }
+
+    // Caches a value computed from the given version, unless the source has moved on since.
+    private void store(Key key, Object value, long version) {
+        synchronized (entries) {
+            if (version == cachedVersion && version == source.version()) {
+                entries.put(key, value);
+            }
+        }
+    }
+
+    @Override
+    public Term[] allMatches(String prefix) {
+        return terms(prefix, ALL_MATCHES);
+    }
+
+    @Override
+    public Term[] topMatches(String prefix, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        return terms(prefix, k);
+    }
+
+    private Term[] terms(String prefix, int k) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null.");
+        }
+        Key key = new Key(prefix, k);
+        long version = source.version();
+        Term[] cached = (Term[]) lookup(key, version);
+        if (cached == null) {
+            cached = k == ALL_MATCHES ? source.allMatches(prefix) : source.topMatches(prefix, k);
+            store(key, cached, version);
+        }
+        // Callers may modify the array they get, but never the cached one
+        return cached.clone();
+    }
+
+    @Override
+    public int numberOfMatches(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null.");
+        }
+        Key key = new Key(prefix, NUMBER_OF_MATCHES);
+        long version = source.version();
+        Integer cached = (Integer) lookup(key, version);
+        if (cached == null) {
+            cached = source.numberOfMatches(prefix);
+            store(key, cached, version);
+        }
+        return cached;
+    }
+
+    @Override
+    public long version() {
+        return source.version();
+    }
+
+    // Returns the number of lookups answered from the cache.
+    public long hits() {
+        return hits.get();
+    }
+
+    // Returns the number of lookups passed on to the source.
+    public long misses() {
+        return misses.get();
+    }
+
+    // Returns the number of entries dropped to stay within capacity.
+    public long evictions() {
+        return evictions.get();
+    }
+
+    // Returns the number of times the cache was cleared because the source changed.
+    public long invalidations() {
+        return invalidations.get();
+    }
+
+    // Returns the number of cached entries.
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Term[] terms = {
+            new Term("apple", 100), new Term("app", 80), new Term("application", 120),
+            new Term("banana", 90), new Term("band", 60)
+        };
+        UpdatableAutocomplete source = new UpdatableAutocomplete(terms);
+        CachingAutocomplete cache = new CachingAutocomplete(source, 2);
+
+        cache.topMatches("ap", 2);
+        cache.topMatches("ap", 2);
+        cache.numberOfMatches("ban");
+        cache.allMatches("b");    // evicts the least recently used entry
+        StdOut.println("hits = " + cache.hits() + ", misses = " + cache.misses()
+                       + ", evictions = " + cache.evictions()); // Expected: 1, 3, 1
+
+        source.put("apricot", 500);
+        StdOut.println("Top match for \"ap\" after update: " + cache.topMatches("ap", 1)[0]); // Expected: 500 apricot
+        StdOut.println("invalidations = " + cache.invalidations()); // Expected: 1
+        source.close();
+    }
+}
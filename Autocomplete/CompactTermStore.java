@@ -0,0 +1,391 @@
+import edu.princeton.cs.algs4.StdOut;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Stores every query in one UTF-8 byte array, with parallel offset and
+// weight arrays, instead of one Term object per entry. Terms are only
+// created for the results a query returns.
+//
+// Queries are kept in unsigned UTF-8 byte order, which is code point order.
+// That differs from String.compareTo only for supplementary characters, so
+// the set of matches is always the same as the sorted-array engine's, but
+// equal-weight results containing such characters may be listed differently.
+//
+// The columns are held in buffers so that a store written with write(Path)
+// can later be memory-mapped by open(Path) and queried in place. A store is
+// never modified after construction, so it is safe for concurrent readers.
+public class CompactTermStore implements SortedTermIndex {
+
+    // Index file layout, little-endian:
+    //   header:  int MAGIC, int VERSION, int n, int byteCount
+    //   weights: n longs
+    //   offsets: n + 1 ints
+    //   tree:    2n ints (RangeMaxTree nodes)
+    //   bytes:   byteCount bytes of UTF-8
+    private static final int MAGIC = 0x41434958; // "ACIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    // Code point order, which is the order of the UTF-8 encoded queries. An
+    // unpaired surrogate is ranked where matchRange looks for it: a trailing
+    // high surrogate as the first code point it can start, any other as the
+    // '?' that getBytes() encodes it as.
+    private static final Comparator<String> CODE_POINT_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int i = 0;
+            int j = 0;
+            while (i < a.length() && j < b.length()) {
+                int ca = a.codePointAt(i);
+                int cb = b.codePointAt(j);
+                int ra = encodedCodePoint(a, i, ca);
+                int rb = encodedCodePoint(b, j, cb);
+                if (ra != rb) {
+                    return Integer.compare(ra, rb);
+                }
+                i += Character.charCount(ca);
+                j += Character.charCount(cb);
+            }
+            return Integer.compare(a.length() - i, b.length() - j);
+        }
+    };
+
+    // The code point s.codePointAt(i) == c sorts as, once encoded by encodeBounds
+    private static int encodedCodePoint(String s, int i, int c) {
+        if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+            return c;
+        }
+        if (i == s.length() - 1 && Character.isHighSurrogate((char) c)) {
+            return Character.toCodePoint((char) c, Character.MIN_LOW_SURROGATE);
+        }
+        return '?';
+    }
+
+    private final ByteBuffer bytes;    // all queries, concatenated in sorted order
+    private final IntBuffer offsets;   // query i occupies bytes[offsets[i] .. offsets[i + 1])
+    private final LongBuffer weights;  // weight of query i
+    private final RangeMaxTree weightTree;
+
+    public CompactTermStore(Term[] terms) {
+        int n = terms.length;
+        final byte[][] encoded = new byte[n][];
+        long totalBytes = 0;
+        for (int i = 0; i < n; i++) {
+            encoded[i] = terms[i].query().getBytes(StandardCharsets.UTF_8);
+            totalBytes += encoded[i].length;
+        }
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Queries exceed " + Integer.MAX_VALUE + " bytes of UTF-8.");
+        }
+
+        // Sort term indices by their encoded queries
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i, Integer j) {
+                return compareUnsigned(encoded[i], encoded[j]);
+            }
+        });
+
+        byte[] allBytes = new byte[(int) totalBytes];
+        int[] allOffsets = new int[n + 1];
+        long[] allWeights = new long[n];
+        int position = 0;
+        for (int i = 0; i < n; i++) {
+            byte[] query = encoded[order[i]];
+            allOffsets[i] = position;
+            System.arraycopy(query, 0, allBytes, position, query.length);
+            position += query.length;
+            allWeights[i] = terms[order[i]].weight();
+        }
+        allOffsets[n] = position;
+
+        this.bytes = ByteBuffer.wrap(allBytes);
+        this.offsets = IntBuffer.wrap(allOffsets);
+        this.weights = LongBuffer.wrap(allWeights);
+        this.weightTree = new RangeMaxTree(this.weights);
+    }
+
+    private CompactTermStore(ByteBuffer bytes, IntBuffer offsets, LongBuffer weights, IntBuffer tree) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.weights = weights;
+        this.weightTree = new RangeMaxTree(weights, tree);
+    }
+
+    // Memory-maps an index file written by write(Path). Queries are answered
+    // straight from the mapped pages, so opening takes no time proportional to
+    // the number of terms and processes that map the same file share its pages.
+    public static CompactTermStore open(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null.");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IllegalArgumentException(path + " is not an Autocomplete index file.");
+            }
+            int n = header.getInt(8);
+            int byteCount = header.getInt(12);
+
+            long position = HEADER_BYTES;
+            long weightsBytes = 8L * n;
+            long offsetsBytes = 4L * (n + 1);
+            long treeBytes = 8L * n;
+            if (channel.size() != position + weightsBytes + offsetsBytes + treeBytes + byteCount) {
+                throw new IllegalArgumentException(path + " is truncated or corrupt.");
+            }
+
+            // A mapping stays valid after its channel is closed
+            LongBuffer weights = map(channel, position, weightsBytes).asLongBuffer();
+            position += weightsBytes;
+            IntBuffer offsets = map(channel, position, offsetsBytes).asIntBuffer();
+            position += offsetsBytes;
+            IntBuffer tree = map(channel, position, treeBytes).asIntBuffer();
+            position += treeBytes;
+            ByteBuffer bytes = map(channel, position, byteCount);
+            return new CompactTermStore(bytes, offsets, weights, tree);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Index section of " + size + " bytes is too large to map.");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Writes this store, including its top-k tree, as an index file for open(Path).
+    public void write(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null.");
+        }
+        int n = size();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            chunk.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(bytes.limit());
+            for (int i = 0; i < n; i++) {
+                ensureRoom(channel, chunk, 8);
+                chunk.putLong(weights.get(i));
+            }
+            for (int i = 0; i <= n; i++) {
+                ensureRoom(channel, chunk, 4);
+                chunk.putInt(offsets.get(i));
+            }
+            IntBuffer tree = weightTree.nodes();
+            for (int i = 0; i < tree.limit(); i++) {
+                ensureRoom(channel, chunk, 4);
+                chunk.putInt(tree.get(i));
+            }
+            flush(channel, chunk);
+            ByteBuffer queries = bytes.duplicate();
+            queries.clear();
+            while (queries.hasRemaining()) {
+                channel.write(queries);
+            }
+        }
+    }
+
+    // Flushes the chunk to the channel if it has fewer than the given bytes free.
+    private static void ensureRoom(FileChannel channel, ByteBuffer chunk, int room) throws IOException {
+        if (chunk.remaining() < room) {
+            flush(channel, chunk);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        int limit = Math.min(a.length, b.length);
+        for (int i = 0; i < limit; i++) {
+            int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    @Override
+    public int size() {
+        return weights.limit();
+    }
+
+    @Override
+    public Comparator<String> queryOrder() {
+        return CODE_POINT_ORDER;
+    }
+
+    // Creates the Term for entry i.
+    private Term termAt(int i) {
+        int start = offsets.get(i);
+        byte[] query = new byte[offsets.get(i + 1) - start];
+        ByteBuffer view = bytes.duplicate();
+        view.position(start);
+        view.get(query);
+        return new Term(new String(query, StandardCharsets.UTF_8), weights.get(i));
+    }
+
+    // Compares the encoded prefix with the first prefix.length bytes of query i.
+    private int comparePrefix(byte[] prefix, int i) {
+        int start = offsets.get(i);
+        int length = offsets.get(i + 1) - start;
+        int limit = Math.min(prefix.length, length);
+        for (int j = 0; j < limit; j++) {
+            int cmp = (prefix[j] & 0xFF) - (bytes.get(start + j) & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return prefix.length <= length ? 0 : 1;
+    }
+
+    // The UTF-8 prefixes of the first and last queries that start with the
+    // prefix. They are the same unless the prefix ends in a high surrogate,
+    // which getBytes() would encode as '?': the queries whose next code point
+    // starts with that surrogate then share the first two bytes of its
+    // four-byte encoding and the top bits of the third, so they lie between
+    // the third byte with its low four bits clear and with them set.
+    private static byte[][] encodeBounds(String prefix) {
+        int n = prefix.length();
+        if (n == 0 || !Character.isHighSurrogate(prefix.charAt(n - 1))) {
+            byte[] encoded = prefix.getBytes(StandardCharsets.UTF_8);
+            return new byte[][] { encoded, encoded };
+        }
+        byte[] head = prefix.substring(0, n - 1).getBytes(StandardCharsets.UTF_8);
+        int codePoint = Character.toCodePoint(prefix.charAt(n - 1), Character.MIN_LOW_SURROGATE);
+        byte[] lower = Arrays.copyOf(head, head.length + 3);
+        lower[head.length] = (byte) (0xF0 | (codePoint >>> 18));
+        lower[head.length + 1] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+        lower[head.length + 2] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+        byte[] upper = lower.clone();
+        upper[head.length + 2] |= 0x0F;
+        return new byte[][] { lower, upper };
+    }
+
+    @Override
+    public int[] matchRange(String prefix, int lo, int hi) {
+        byte[][] bounds = encodeBounds(prefix);
+
+        // First index in [lo, hi) whose query is not less than the prefix
+        int low = lo;
+        int high = hi;
+        while (low < high) {
+            int mid = low + (high - low) / 2;
+            if (comparePrefix(bounds[0], mid) > 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int first = low;
+
+        // First index after that whose query does not start with the prefix
+        high = hi;
+        while (low < high) {
+            int mid = low + (high - low) / 2;
+            if (comparePrefix(bounds[1], mid) >= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return new int[] { first, low };
+    }
+
+    @Override
+    public Term[] allMatches(int first, int end) {
+        Term[] matches = new Term[end - first];
+        for (int i = first; i < end; i++) {
+            matches[i - first] = termAt(i);
+        }
+
+        // Sort the matching terms in descending order of weight
+        Arrays.sort(matches, Term.byReverseWeightOrder());
+        return matches;
+    }
+
+    @Override
+    public Term[] topMatches(int first, int end, int k) {
+        int[] top = weightTree.topK(first, end - 1, k);
+        Term[] matches = new Term[top.length];
+        for (int i = 0; i < top.length; i++) {
+            matches[i] = termAt(top[i]);
+        }
+        return matches;
+    }
+
+    @Override
+    public Term[] allMatches(String prefix) {
+        int[] range = matchRange(prefix, 0, size());
+        return allMatches(range[0], range[1]);
+    }
+
+    @Override
+    public int numberOfMatches(String prefix) {
+        int[] range = matchRange(prefix, 0, size());
+        return range[1] - range[0];
+    }
+
+    @Override
+    public Term[] topMatches(String prefix, int k) {
+        int[] range = matchRange(prefix, 0, size());
+        return topMatches(range[0], range[1], k);
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Term[] terms = {
+            new Term("apple", 100), new Term("app", 80), new Term("application", 120),
+            new Term("banana", 90), new Term("band", 60), new Term("ape", 50)
+        };
+        CompactTermStore store = new CompactTermStore(terms);
+        StdOut.println("size() = " + store.size());                                  // Expected: 6
+        StdOut.println("numberOfMatches(\"ap\") = " + store.numberOfMatches("ap"));   // Expected: 4
+        StdOut.println("numberOfMatches(\"c\") = " + store.numberOfMatches("c"));     // Expected: 0
+        for (Term t : store.allMatches("ban")) {
+            StdOut.println(t); // Expected: 90 banana, 60 band
+        }
+
+        // A prefix that ends inside a surrogate pair matches as String.startsWith does
+        CompactTermStore pairs = new CompactTermStore(new Term[] {
+            new Term("x\uD83D\uDE00", 3), new Term("x\uD83D\uDFFF", 2), new Term("x\uD83C\uDF00", 1)
+        });
+        StdOut.println("numberOfMatches(\"x\\uD83D\") = " + pairs.numberOfMatches("x\uD83D")); // Expected: 2
+
+        // Round trip through an index file
+        try {
+            File file = File.createTempFile("autocomplete", ".idx");
+            file.deleteOnExit();
+            store.write(file.toPath());
+            CompactTermStore mapped = CompactTermStore.open(file.toPath());
+            StdOut.println("mapped numberOfMatches(\"ap\") = " + mapped.numberOfMatches("ap")); // Expected: 4
+            for (Term t : mapped.topMatches("ap", 2)) {
+                StdOut.println(t); // Expected: 120 application, 100 apple
+            }
+        } catch (IOException e) {
+            StdOut.println("Index round trip failed: " + e.getMessage());
+        }
+    }
+}
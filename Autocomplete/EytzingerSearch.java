@@ -0,0 +1,313 @@
+import edu.princeton.cs.algs4.StdOut;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+// A copy of a sorted array in Eytzinger (breadth-first) order: the root is at
+// position 1 and the children of k are at 2k and 2k + 1. The top levels of
+// every search share the same few cache lines, and the loop picks a child
+// with arithmetic instead of a three-way branch. Results are indices into the
+// original sorted array, as BinarySearchDeluxe returns them.
+//
+// Java has no prefetch instruction, so once the array outgrows the caches the
+// per-level misses come back and the extra rank lookup costs one more; run
+// main to see where the crossover lies on a given machine.
+//
+// OfLong and OfInt are the same layout over primitive arrays, without boxing.
+public class EytzingerSearch<Key> {
+
+    private final Key[] tree;        // tree[1 .. n] in breadth-first order
+    private final int[] rank;        // rank[k] is the sorted index of tree[k]
+    private final Comparator<Key> comparator;
+    private final int n;
+
+    // Copies the sorted array into Eytzinger order.
+    @SuppressWarnings("unchecked")
+    public EytzingerSearch(Key[] sorted, Comparator<Key> comparator) {
+        if (sorted == null) {
+            throw new IllegalArgumentException("Array cannot be null.");
+        }
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null.");
+        }
+        this.n = sorted.length;
+        this.comparator = comparator;
+        this.tree = (Key[]) new Object[n + 1];
+        this.rank = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (sorted[i] == null) {
+                throw new IllegalArgumentException("Array contains null elements.");
+            }
+        }
+        fill(sorted, 0, 1);
+    }
+
+    // Fills the subtree rooted at k with sorted[i ..] in order; returns the next i.
+    private int fill(Key[] sorted, int i, int k) {
+        if (k <= n) {
+            i = fill(sorted, i, 2 * k);
+            tree[k] = sorted[i];
+            rank[k] = i++;
+            i = fill(sorted, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    // Descends to the leaves, going right past every element less than key
+    // (or also past equal ones, if inclusive), and returns where it fell off.
+    private int descend(Key key, boolean inclusive) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+        int limit = inclusive ? 1 : 0;
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (comparator.compare(tree[k], key) < limit ? 1 : 0);
+        }
+        return k;
+    }
+
+    // Returns the index of the first element not less than key, or n if there is none.
+    public int lowerBound(Key key) {
+        int k = lastLeftTurn(descend(key, false));
+        return k == 0 ? n : rank[k];
+    }
+
+    // Returns the index of the first element greater than key, or n if there is none.
+    public int upperBound(Key key) {
+        int k = lastLeftTurn(descend(key, true));
+        return k == 0 ? n : rank[k];
+    }
+
+    // Same contract as BinarySearchDeluxe.firstIndexOf.
+    public int firstIndexOf(Key key) {
+        int k = lastLeftTurn(descend(key, false));
+        return k != 0 && comparator.compare(tree[k], key) == 0 ? rank[k] : -1;
+    }
+
+    // Same contract as BinarySearchDeluxe.lastIndexOf.
+    public int lastIndexOf(Key key) {
+        int k = lastRightTurn(descend(key, true));
+        return k != 0 && comparator.compare(tree[k], key) == 0 ? rank[k] : -1;
+    }
+
+    // The bits of a fallen-off position spell the path taken, 1 for right.
+    // The first element past the search key is the node of the last left
+    // turn: drop the trailing right turns and that left turn. 0 means none.
+    private static int lastLeftTurn(int k) {
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    // Likewise, the last element before the search key is the node of the
+    // last right turn. 0 means none.
+    private static int lastRightTurn(int k) {
+        return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+    }
+
+    // The Eytzinger layout over a sorted long[].
+    public static class OfLong {
+        private final long[] tree;
+        private final int[] rank;
+        private final int n;
+
+        public OfLong(long[] sorted) {
+            if (sorted == null) {
+                throw new IllegalArgumentException("Array cannot be null.");
+            }
+            this.n = sorted.length;
+            this.tree = new long[n + 1];
+            this.rank = new int[n + 1];
+            fill(sorted, 0, 1);
+        }
+
+        private int fill(long[] sorted, int i, int k) {
+            if (k <= n) {
+                i = fill(sorted, i, 2 * k);
+                tree[k] = sorted[i];
+                rank[k] = i++;
+                i = fill(sorted, i, 2 * k + 1);
+            }
+            return i;
+        }
+
+        private int descend(long key, boolean inclusive) {
+            int k = 1;
+            if (inclusive) {
+                while (k <= n) {
+                    k = 2 * k + (tree[k] <= key ? 1 : 0);
+                }
+            } else {
+                while (k <= n) {
+                    k = 2 * k + (tree[k] < key ? 1 : 0);
+                }
+            }
+            return k;
+        }
+
+        // Returns the index of the first element not less than key, or n.
+        public int lowerBound(long key) {
+            int k = lastLeftTurn(descend(key, false));
+            return k == 0 ? n : rank[k];
+        }
+
+        // Returns the index of the first element greater than key, or n.
+        public int upperBound(long key) {
+            int k = lastLeftTurn(descend(key, true));
+            return k == 0 ? n : rank[k];
+        }
+
+        // Returns the index of the first element equal to key, or -1.
+        public int firstIndexOf(long key) {
+            int k = lastLeftTurn(descend(key, false));
+            return k != 0 && tree[k] == key ? rank[k] : -1;
+        }
+
+        // Returns the index of the last element equal to key, or -1.
+        public int lastIndexOf(long key) {
+            int k = lastRightTurn(descend(key, true));
+            return k != 0 && tree[k] == key ? rank[k] : -1;
+        }
+    }
+
+    // The Eytzinger layout over a sorted int[].
+    public static class OfInt {
+        private final int[] tree;
+        private final int[] rank;
+        private final int n;
+
+        public OfInt(int[] sorted) {
+            if (sorted == null) {
+                throw new IllegalArgumentException("Array cannot be null.");
+            }
+            this.n = sorted.length;
+            this.tree = new int[n + 1];
+            this.rank = new int[n + 1];
+            fill(sorted, 0, 1);
+        }
+
+        private int fill(int[] sorted, int i, int k) {
+            if (k <= n) {
+                i = fill(sorted, i, 2 * k);
+                tree[k] = sorted[i];
+                rank[k] = i++;
+                i = fill(sorted, i, 2 * k + 1);
+            }
+            return i;
+        }
+
+        private int descend(int key, boolean inclusive) {
+            int k = 1;
+            if (inclusive) {
+                while (k <= n) {
+                    k = 2 * k + (tree[k] <= key ? 1 : 0);
+                }
+            } else {
+                while (k <= n) {
+                    k = 2 * k + (tree[k] < key ? 1 : 0);
+                }
+            }
+            return k;
+        }
+
+        // Returns the index of the first element not less than key, or n.
+        public int lowerBound(int key) {
+            int k = lastLeftTurn(descend(key, false));
+            return k == 0 ? n : rank[k];
+        }
+
+        // Returns the index of the first element greater than key, or n.
+        public int upperBound(int key) {
+            int k = lastLeftTurn(descend(key, true));
+            return k == 0 ? n : rank[k];
+        }
+
+        // Returns the index of the first element equal to key, or -1.
+        public int firstIndexOf(int key) {
+            int k = lastLeftTurn(descend(key, false));
+            return k != 0 && tree[k] == key ? rank[k] : -1;
+        }
+
+        // Returns the index of the last element equal to key, or -1.
+        public int lastIndexOf(int key) {
+            int k = lastRightTurn(descend(key, true));
+            return k != 0 && tree[k] == key ? rank[k] : -1;
+        }
+    }
+
+    // Benchmark against BinarySearchDeluxe at 1e3 .. maxSize elements.
+    // Usage: java EytzingerSearch [maxSize] [queries]
+    // Sizes of 1e8 need a heap of several GB, mostly for the boxed copies.
+    public static void main(String[] args) {
+        long maxSize = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        Random random = new Random(226);
+        Comparator<Long> natural = new Comparator<Long>() {
+            @Override
+            public int compare(Long a, Long b) {
+                return Long.compare(a, b);
+            }
+        };
+
+        StdOut.printf("%12s %16s %16s %16s %16s\n", "n", "deluxe ns/op", "eytzinger ns/op",
+                      "long[] bs ns/op", "OfLong ns/op");
+        for (long size = 1000; size <= maxSize; size *= 10) {
+            int n = (int) size;
+            long[] sorted = new long[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = 2L * i; // only even keys, so half the queries miss
+            }
+            long[] keys = new long[queries];
+            for (int q = 0; q < queries; q++) {
+                keys[q] = (long) (random.nextDouble() * 2 * n);
+            }
+            Long[] boxed = new Long[n];
+            for (int i = 0; i < n; i++) {
+                boxed[i] = sorted[i];
+            }
+            Long[] boxedKeys = new Long[queries];
+            for (int q = 0; q < queries; q++) {
+                boxedKeys[q] = keys[q];
+            }
+
+            EytzingerSearch<Long> eytzinger = new EytzingerSearch<>(boxed, natural);
+            OfLong ofLong = new OfLong(sorted);
+
+            // Checksums keep the JIT from discarding the searches, and
+            // doubling as a check that all four agree
+            long[] checksum = new long[4];
+            double[] nanos = new double[4];
+            for (int round = 0; round < 2; round++) { // first round warms up
+                long start = System.nanoTime();
+                long sum = 0;
+                for (int q = 0; q < queries; q++) sum += BinarySearchDeluxe.firstIndexOf(boxed, boxedKeys[q], natural);
+                nanos[0] = (System.nanoTime() - start) / (double) queries;
+                checksum[0] = sum;
+
+                start = System.nanoTime();
+                sum = 0;
+                for (int q = 0; q < queries; q++) sum += eytzinger.firstIndexOf(boxedKeys[q]);
+                nanos[1] = (System.nanoTime() - start) / (double) queries;
+                checksum[1] = sum;
+
+                start = System.nanoTime();
+                sum = 0;
+                for (int q = 0; q < queries; q++) {
+                    int i = Arrays.binarySearch(sorted, keys[q]);
+                    sum += i >= 0 ? i : -1; // keys are unique, so any hit is the first
+                }
+                nanos[2] = (System.nanoTime() - start) / (double) queries;
+                checksum[2] = sum;
+
+                start = System.nanoTime();
+                sum = 0;
+                for (int q = 0; q < queries; q++) sum += ofLong.firstIndexOf(keys[q]);
+                nanos[3] = (System.nanoTime() - start) / (double) queries;
+                checksum[3] = sum;
+            }
+
+            boolean agree = checksum[0] == checksum[1] && checksum[1] == checksum[2] && checksum[2] == checksum[3];
+            StdOut.printf("%12d %16.1f %16.1f %16.1f %16.1f%s\n", n, nanos[0], nanos[1], nanos[2], nanos[3],
+                          agree ? "" : "  (results disagree!)");
+        }
+    }
+}
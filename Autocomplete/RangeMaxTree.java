@@ -0,0 +1,175 @@
+import edu.princeton.cs.algs4.StdOut;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+public class RangeMaxTree {
+
+    // Buffers rather than arrays, so a tree can also be read from a mapped index file
+    private final LongBuffer weights;
+    private final int n;
+    // tree[n + i] is leaf i; tree[p] holds the index of the heavier child of p
+    private final IntBuffer tree;
+
+    // Builds the tree over the given weights in O(n) time and 2n ints of space.
+    public RangeMaxTree(long[] weights) {
+        this(weights == null ? null : LongBuffer.wrap(weights));
+    }
+
+    // Builds the tree over the weights in [0, limit) of the given buffer.
+    public RangeMaxTree(LongBuffer weights) {
+        if (weights == null) {
+            throw new IllegalArgumentException("Weights array cannot be null.");
+        }
+        this.weights = weights;
+        this.n = weights.limit();
+        this.tree = IntBuffer.wrap(new int[2 * n]);
+        for (int i = 0; i < n; i++) {
+            tree.put(n + i, i);
+        }
+        for (int p = n - 1; p > 0; p--) {
+            tree.put(p, heavier(tree.get(2 * p), tree.get(2 * p + 1)));
+        }
+    }
+
+    // Wraps a tree previously built over the same weights, such as one
+    // read back from an index file. The tree buffer must hold 2n ints.
+    RangeMaxTree(LongBuffer weights, IntBuffer tree) {
+        if (tree.limit() != 2 * weights.limit()) {
+            throw new IllegalArgumentException("Tree size does not match the number of weights.");
+        }
+        this.weights = weights;
+        this.n = weights.limit();
+        this.tree = tree;
+    }
+
+    // Returns a read-only view of the tree nodes, for writing them out.
+    IntBuffer nodes() {
+        return tree.asReadOnlyBuffer();
+    }
+
+    // Returns the index of the heaviest weight in [lo, hi] (inclusive).
+    // Ties are broken in favor of the smaller index.
+    public int argMax(int lo, int hi) {
+        if (lo < 0 || hi >= n || lo > hi) {
+            throw new IllegalArgumentException("Invalid range [" + lo + ", " + hi + "]");
+        }
+        int best = lo;
+        for (int l = lo + n, r = hi + n + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) best = heavier(best, tree.get(l++));
+            if ((r & 1) == 1) best = heavier(best, tree.get(--r));
+        }
+        return best;
+    }
+
+    // Returns the indices of the k heaviest weights in [lo, hi] (inclusive),
+    // heaviest first, in O(k log n + k log k) time. Ties are broken in favor of
+    // the smaller index, so the result is a prefix of a stable sort of the range.
+    public int[] topK(int lo, int hi, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        if (lo > hi || k == 0) {
+            return new int[0];
+        }
+        int count = Math.min(k, hi - lo + 1);
+        int[] result = new int[count];
+
+        // Max-heap of disjoint sub-ranges, keyed by the heaviest index in each.
+        // Every pop pushes at most two ranges, so count + 1 slots always suffice.
+        int[] heapLo = new int[count + 1];
+        int[] heapHi = new int[count + 1];
+        int[] heapArg = new int[count + 1];
+        int size = 0;
+
+        heapLo[0] = lo;
+        heapHi[0] = hi;
+        heapArg[0] = argMax(lo, hi);
+        size = 1;
+
+        for (int i = 0; i < count; i++) {
+            int rangeLo = heapLo[0];
+            int rangeHi = heapHi[0];
+            int arg = heapArg[0];
+            result[i] = arg;
+
+            // Remove the root
+            size--;
+            heapLo[0] = heapLo[size];
+            heapHi[0] = heapHi[size];
+            heapArg[0] = heapArg[size];
+            sink(heapLo, heapHi, heapArg, size, 0);
+
+            // Split the range around the emitted index
+            if (rangeLo < arg) {
+                size = push(heapLo, heapHi, heapArg, size, rangeLo, arg - 1, argMax(rangeLo, arg - 1));
+            }
+            if (arg < rangeHi) {
+                size = push(heapLo, heapHi, heapArg, size, arg + 1, rangeHi, argMax(arg + 1, rangeHi));
+            }
+        }
+        return result;
+    }
+
+    private int push(int[] heapLo, int[] heapHi, int[] heapArg, int size, int lo, int hi, int arg) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heavier(heapArg[parent], arg) == heapArg[parent]) break;
+            heapLo[i] = heapLo[parent];
+            heapHi[i] = heapHi[parent];
+            heapArg[i] = heapArg[parent];
+            i = parent;
+        }
+        heapLo[i] = lo;
+        heapHi[i] = hi;
+        heapArg[i] = arg;
+        return size + 1;
+    }
+
+    private void sink(int[] heapLo, int[] heapHi, int[] heapArg, int size, int i) {
+        int lo = heapLo[i];
+        int hi = heapHi[i];
+        int arg = heapArg[i];
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heavier(heapArg[child + 1], heapArg[child]) == heapArg[child + 1]) {
+                child++;
+            }
+            if (heavier(arg, heapArg[child]) == arg) break;
+            heapLo[i] = heapLo[child];
+            heapHi[i] = heapHi[child];
+            heapArg[i] = heapArg[child];
+            i = child;
+        }
+        heapLo[i] = lo;
+        heapHi[i] = hi;
+        heapArg[i] = arg;
+    }
+
+    // Returns whichever of the two indices has the larger weight,
+    // preferring the smaller index on ties.
+    private int heavier(int i, int j) {
+        long wi = weights.get(i);
+        long wj = weights.get(j);
+        if (wi != wj) {
+            return wi > wj ? i : j;
+        }
+        return Math.min(i, j);
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        long[] weights = { 5, 1, 9, 3, 9, 7, 2, 8 };
+        RangeMaxTree tree = new RangeMaxTree(weights);
+        StdOut.println("argMax(0, 7) = " + tree.argMax(0, 7)); // Expected: 2
+        StdOut.println("argMax(3, 6) = " + tree.argMax(3, 6)); // Expected: 4
+        StdOut.println("argMax(5, 5) = " + tree.argMax(5, 5)); // Expected: 5
+
+        int[] top = tree.topK(0, 7, 4);
+        StringBuilder sb = new StringBuilder();
+        for (int i : top) {
+            sb.append(i).append(' ');
+        }
+        StdOut.println("topK(0, 7, 4) = " + sb.toString().trim()); // Expected: 2 4 7 5
+    }
+}
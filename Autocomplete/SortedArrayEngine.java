@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class SortedArrayEngine implements SortedTermIndex {
+
+    private static final Comparator<String> NATURAL_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            return a.compareTo(b);
+        }
+    };
+
+    private final Term[] terms;
+    private final RangeMaxTree weightTree;
+
+    // Takes ownership of the given array and sorts it in place.
+    public SortedArrayEngine(Term[] terms) {
+        this(terms, false);
+    }
+
+    private SortedArrayEngine(Term[] terms, boolean sorted) {
+        this.terms = terms;
+        // Sort the array in natural (lexicographic) order
+        if (!sorted) {
+            Arrays.sort(this.terms);
+        }
+
+        // Index the weights in lexicographic order for top-k queries
+        long[] weights = new long[this.terms.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = this.terms[i].weight();
+        }
+        this.weightTree = new RangeMaxTree(weights);
+    }
+
+    // Takes ownership of an array the caller has already sorted in natural
+    // order, such as one merged from other engines, and does not sort it again
+    static SortedArrayEngine presorted(Term[] terms) {
+        return new SortedArrayEngine(terms, true);
+    }
+
+    // Returns the i-th term in natural order.
+    Term term(int i) {
+        return terms[i];
+    }
+
+    @Override
+    public int size() {
+        return terms.length;
+    }
+
+    @Override
+    public Comparator<String> queryOrder() {
+        return NATURAL_ORDER;
+    }
+
+    @Override
+    public int[] matchRange(String prefix, int lo, int hi) {
+        if (prefix.isEmpty()) {
+            // All terms match
+            return new int[] { lo, hi };
+        }
+
+        // Find both ends of the matching range in one descent
+        return BinarySearchDeluxe.equalRangeOfPrefix(this.terms, prefix, lo, hi);
+    }
+
+    @Override
+    public Term[] allMatches(int first, int end) {
+        Term[] matches = Arrays.copyOfRange(this.terms, first, end);
+
+        // Sort the matching terms in descending order of weight
+        Arrays.sort(matches, Term.byReverseWeightOrder());
+        return matches;
+    }
+
+    @Override
+    public Term[] topMatches(int first, int end, int k) {
+        int[] top = weightTree.topK(first, end - 1, k);
+        Term[] matches = new Term[top.length];
+        for (int i = 0; i < top.length; i++) {
+            matches[i] = this.terms[top[i]];
+        }
+        return matches;
+    }
+
+    @Override
+    public Term[] allMatches(String prefix) {
+        int[] range = matchRange(prefix, 0, terms.length);
+        return allMatches(range[0], range[1]);
+    }
+
+    @Override
+    public int numberOfMatches(String prefix) {
+        int[] range = matchRange(prefix, 0, terms.length);
+        return range[1] - range[0];
+    }
+
+    @Override
+    public Term[] topMatches(String prefix, int k) {
+        int[] range = matchRange(prefix, 0, terms.length);
+        return topMatches(range[0], range[1], k);
+    }
+}
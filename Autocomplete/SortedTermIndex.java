@@ -0,0 +1,25 @@
+import java.util.Comparator;
+
+// An engine that keeps its terms in one sorted sequence, so the matches of
+// a prefix form a contiguous index range. Batches of sorted prefixes use
+// this to narrow each search to the range found for the previous one.
+public interface SortedTermIndex extends AutocompleteEngine {
+
+    // Returns the number of terms in the index.
+    int size();
+
+    // Returns the order the queries are sorted in.
+    Comparator<String> queryOrder();
+
+    // Returns {first, end} such that [first, end) holds exactly the queries that
+    // start with the prefix and no query before first is greater than it. The
+    // caller promises the same of [lo, hi): every match lies inside it and no
+    // query before lo is greater than the prefix.
+    int[] matchRange(String prefix, int lo, int hi);
+
+    // Returns the terms in [first, end), in descending order of weight.
+    Term[] allMatches(int first, int end);
+
+    // Returns the k heaviest terms in [first, end), in descending order of weight.
+    Term[] topMatches(int first, int end, int k);
+}
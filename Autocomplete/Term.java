@@ -18,6 +18,16 @@ public class Term implements Comparable<Term> {
         this.weight = weight;
     }
 
+    // Returns the query string of this term.
+    String query() {
+        return query;
+    }
+
+    // Returns the weight of this term.
+    long weight() {
+        return weight;
+    }
+
     // Compares the two terms in descending order by weight.
     public static Comparator<Term> byReverseWeightOrder() {
         return new Comparator<Term>() {
@@ -38,26 +48,34 @@ public class Term implements Comparable<Term> {
         return new Comparator<Term>() {
             @Override
             public int compare(Term t1, Term t2) {
-                String t1SubString;
-                String t2SubString;
-
-                // Prevent out of bounds if prefix r > string length
-                if (r <= t1.query.length()) {
-                    t1SubString = t1.query.substring(0, r);
-                } else {
-                    t1SubString = t1.query;
-                }
-                if (r <= t2.query.length()) {
-                    t2SubString = t2.query.substring(0, r);
-                } else {
-                    t2SubString = t2.query;
-                }
-
-                return t1SubString.compareTo(t2SubString);
+                return comparePrefix(t1.query, t2.query, r);
             }
         };
     }
 
+    // Compares the given prefix with the first prefix.length() characters
+    // of the term's query, the same way byPrefixOrder(prefix.length()) would
+    // compare a key term holding the prefix, but without building one.
+    static int comparePrefix(String prefix, Term term) {
+        return comparePrefix(prefix, term.query, prefix.length());
+    }
+
+    // Compares the first r characters of a and b in place, giving the same
+    // result as comparing the truncated strings with String.compareTo.
+    private static int comparePrefix(String a, String b, int r) {
+        int lengthA = Math.min(a.length(), r);
+        int lengthB = Math.min(b.length(), r);
+        int limit = Math.min(lengthA, lengthB);
+        for (int i = 0; i < limit; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
     // Compares the two terms in lexicographic order by query.
     @Override
     public int compareTo(Term that) {
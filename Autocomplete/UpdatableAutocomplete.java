@@ -0,0 +1,334 @@
+import edu.princeton.cs.algs4.StdOut;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// An autocomplete whose weights can change and whose term set can grow
+// without a full rebuild on every change.
+//
+// Writes go to a small sorted delta map. Once it holds mergeThreshold
+// queries it is frozen and merged with the immutable sorted base on a
+// background thread, after which the new base is swapped in atomically.
+// Both are already in lexicographic order, so a merge is one linear pass
+// over them rather than a sort of the whole corpus.
+// Queries combine the base with the deltas, newest weight winning.
+// Readers never take a lock; writers only wait for the moment a delta is frozen.
+//
+// Every query has exactly one weight here: if the initial terms repeat a
+// query, the last occurrence wins.
+//
+// Each instance owns its merge thread; close() stops it once the
+// autocomplete is no longer needed.
+public class UpdatableAutocomplete implements AutocompleteEngine, AutoCloseable {
+
+    private static final int DEFAULT_MERGE_THRESHOLD = 4096;
+
+    // Orders terms by descending weight, then lexicographically, as Autocomplete does
+    private static final Comparator<Term> HEAVIEST_FIRST = new Comparator<Term>() {
+        @Override
+        public int compare(Term t1, Term t2) {
+            int cmp = Long.compare(t2.weight(), t1.weight());
+            if (cmp != 0) {
+                return cmp;
+            }
+            return t1.compareTo(t2);
+        }
+    };
+
+    // Everything a query needs, replaced as a whole so readers see one consistent state.
+    // The delta sizes are counted here because ConcurrentSkipListMap.size()
+    // walks every entry.
+    private static final class Snapshot {
+        private final SortedArrayEngine base;
+        private final NavigableMap<String, Long> frozen;               // being merged, read-only
+        private final int frozenSize;
+        private final ConcurrentSkipListMap<String, Long> active;      // receiving writes
+        private final AtomicInteger activeSize;                        // queries in active
+
+        Snapshot(SortedArrayEngine base, NavigableMap<String, Long> frozen, int frozenSize,
+                 ConcurrentSkipListMap<String, Long> active, AtomicInteger activeSize) {
+            this.base = base;
+            this.frozen = frozen;
+            this.frozenSize = frozenSize;
+            this.active = active;
+            this.activeSize = activeSize;
+        }
+    }
+
+    private volatile Snapshot current;
+    private final int mergeThreshold;
+    private final AtomicLong version = new AtomicLong();
+
+    // Writers share the read side; freezing the active delta takes the write side
+    private final ReentrantReadWriteLock freezeLock = new ReentrantReadWriteLock();
+    private final Object mergeLock = new Object();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "autocomplete-merge");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public UpdatableAutocomplete(Term[] terms) {
+        this(terms, DEFAULT_MERGE_THRESHOLD);
+    }
+
+    public UpdatableAutocomplete(Term[] terms, int mergeThreshold) {
+        if (terms == null) {
+            throw new IllegalArgumentException("Terms array cannot be null.");
+        }
+        if (mergeThreshold <= 0) {
+            throw new IllegalArgumentException("Merge threshold must be positive.");
+        }
+        Map<String, Term> unique = new LinkedHashMap<>();
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i] == null) {
+                throw new IllegalArgumentException("Term at index " + i + " is null.");
+            }
+            unique.put(terms[i].query(), terms[i]);
+        }
+        this.mergeThreshold = mergeThreshold;
+        this.current = new Snapshot(new SortedArrayEngine(unique.values().toArray(new Term[0])),
+                                    new ConcurrentSkipListMap<String, Long>(), 0,
+                                    new ConcurrentSkipListMap<String, Long>(), new AtomicInteger());
+    }
+
+    // Inserts the query, or replaces its weight if it is already present.
+    public void put(String query, long weight) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight cannot be negative");
+        }
+        int pending;
+        freezeLock.readLock().lock();
+        try {
+            // The delta cannot be frozen while the lock is held, so the count stays exact
+            Snapshot s = current;
+            if (s.active.put(query, weight) == null) {
+                pending = s.activeSize.incrementAndGet();
+            } else {
+                pending = s.activeSize.get();
+            }
+            version.incrementAndGet();
+        } finally {
+            freezeLock.readLock().unlock();
+        }
+        if (pending >= mergeThreshold && mergeScheduled.compareAndSet(false, true)) {
+            try {
+                merger.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mergeScheduled.set(false);
+                        merge();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed: the update stays in the delta until merge() is called directly
+                mergeScheduled.set(false);
+            }
+        }
+    }
+
+    // Stops the merge thread, letting a merge already running finish. Updates
+    // are still accepted and answered from the delta, and merge() may still
+    // be called directly.
+    @Override
+    public void close() {
+        merger.shutdown();
+    }
+
+    // Returns a number that changes whenever the visible weights change.
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    // Returns the number of queries waiting in the deltas to be merged.
+    public int pendingUpdates() {
+        Snapshot s = current;
+        return s.frozenSize + s.activeSize.get();
+    }
+
+    // Folds every pending update into a new immutable base and swaps it in.
+    // Runs in the background once the delta reaches the merge threshold, but
+    // may also be called directly. Queries keep running throughout.
+    public void merge() {
+        synchronized (mergeLock) {
+            // Freeze the active delta; later writes go to a fresh one
+            Snapshot frozen;
+            freezeLock.writeLock().lock();
+            try {
+                Snapshot s = current;
+                if (s.active.isEmpty()) {
+                    return;
+                }
+                frozen = new Snapshot(s.base, s.active, s.activeSize.get(),
+                                      new ConcurrentSkipListMap<String, Long>(), new AtomicInteger());
+                current = frozen;
+            } finally {
+                freezeLock.writeLock().unlock();
+            }
+
+            // Build the merged base without blocking readers or writers. The
+            // base and the delta are both in natural order, so merge them in
+            // one pass, the delta's weight winning for a query in both.
+            SortedArrayEngine old = frozen.base;
+            Term[] merged = new Term[old.size() + frozen.frozenSize];
+            int n = 0;
+            int i = 0;
+            Iterator<Map.Entry<String, Long>> updates = frozen.frozen.entrySet().iterator();
+            Map.Entry<String, Long> update = updates.hasNext() ? updates.next() : null;
+            while (i < old.size() || update != null) {
+                int cmp = update == null ? -1
+                        : i == old.size() ? 1
+                        : old.term(i).query().compareTo(update.getKey());
+                if (cmp < 0) {
+                    merged[n++] = old.term(i++);
+                } else {
+                    if (cmp == 0) {
+                        i++;
+                    }
+                    merged[n++] = new Term(update.getKey(), update.getValue());
+                    update = updates.hasNext() ? updates.next() : null;
+                }
+            }
+            SortedArrayEngine base = SortedArrayEngine.presorted(Arrays.copyOf(merged, n));
+
+            // Only merges replace the snapshot, so the active delta can be carried over as is
+            Snapshot s = current;
+            current = new Snapshot(base, new ConcurrentSkipListMap<String, Long>(), 0, s.active, s.activeSize);
+        }
+    }
+
+    // Returns the pending weights of every query that starts with the prefix,
+    // newest delta winning.
+    private static Map<String, Long> overrides(Snapshot s, String prefix) {
+        Map<String, Long> overrides = new HashMap<>();
+        addMatches(s.frozen, prefix, overrides);
+        addMatches(s.active, prefix, overrides);
+        return overrides;
+    }
+
+    private static void addMatches(NavigableMap<String, Long> delta, String prefix, Map<String, Long> overrides) {
+        for (Map.Entry<String, Long> e : delta.tailMap(prefix, true).entrySet()) {
+            if (!e.getKey().startsWith(prefix)) {
+                break;
+            }
+            overrides.put(e.getKey(), e.getValue());
+        }
+    }
+
+    // Is the query in the base, as an exact match?
+    private static boolean inBase(SortedArrayEngine base, String query) {
+        int[] range = base.matchRange(query, 0, base.size());
+        // The query itself sorts first among the terms it is a prefix of
+        return range[0] < range[1] && base.allMatches(range[0], range[0] + 1)[0].query().equals(query);
+    }
+
+    // Merges base results with the overriding delta entries, heaviest first.
+    private static Term[] combine(Term[] fromBase, Map<String, Long> overrides, int limit) {
+        List<Term> combined = new ArrayList<>(fromBase.length + overrides.size());
+        for (Term t : fromBase) {
+            if (!overrides.containsKey(t.query())) {
+                combined.add(t);
+            }
+        }
+        for (Map.Entry<String, Long> e : overrides.entrySet()) {
+            combined.add(new Term(e.getKey(), e.getValue()));
+        }
+        Term[] result = combined.toArray(new Term[0]);
+        Arrays.sort(result, HEAVIEST_FIRST);
+        return result.length > limit ? Arrays.copyOf(result, limit) : result;
+    }
+
+    @Override
+    public Term[] allMatches(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null.");
+        }
+        Snapshot s = current;
+        Map<String, Long> overrides = overrides(s, prefix);
+        return combine(s.base.allMatches(prefix), overrides, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int numberOfMatches(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null.");
+        }
+        Snapshot s = current;
+        int count = s.base.numberOfMatches(prefix);
+        for (String query : overrides(s, prefix).keySet()) {
+            if (!inBase(s.base, query)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Term[] topMatches(String prefix, int k) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null.");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        Snapshot s = current;
+        Map<String, Long> overrides = overrides(s, prefix);
+        // Each override can knock out at most one base term, since base queries are unique
+        int fetch = (int) Math.min(Integer.MAX_VALUE, (long) k + overrides.size());
+        return combine(s.base.topMatches(prefix, fetch), overrides, k);
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Term[] terms = {
+            new Term("apple", 100), new Term("app", 80), new Term("application", 120),
+            new Term("banana", 90), new Term("band", 60)
+        };
+        UpdatableAutocomplete autocomplete = new UpdatableAutocomplete(terms, 2);
+
+        autocomplete.put("apple", 500);     // update
+        autocomplete.put("apricot", 110);   // insert
+        StdOut.println("Top 3 for \"ap\" after updates:");
+        for (Term t : autocomplete.topMatches("ap", 3)) {
+            StdOut.println(t); // Expected: 500 apple, 120 application, 110 apricot
+        }
+        StdOut.println("numberOfMatches(\"ap\") = " + autocomplete.numberOfMatches("ap")); // Expected: 4
+
+        autocomplete.merge();
+        StdOut.println("Pending updates after merge: " + autocomplete.pendingUpdates()); // Expected: 0
+        StdOut.println("numberOfMatches(\"ap\") = " + autocomplete.numberOfMatches("ap")); // Expected: 4
+        for (Term t : autocomplete.allMatches("ban")) {
+            StdOut.println(t); // Expected: 90 banana, 60 band
+        }
+
+        autocomplete.close();
+        autocomplete.put("bandana", 70);
+        autocomplete.put("banner", 40);     // reaches the threshold with no merge thread
+        StdOut.println("Pending updates after close: " + autocomplete.pendingUpdates()); // Expected: 2
+        autocomplete.merge();
+        StdOut.println("numberOfMatches(\"ban\") = " + autocomplete.numberOfMatches("ban")); // Expected: 4
+    }
+}
@@ -0,0 +1,272 @@
+import edu.princeton.cs.algs4.StdOut;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class WeightedTST implements AutocompleteEngine {
+
+    // Orders terms by descending weight, then lexicographically,
+    // which is the order allMatches reports ties in.
+    private static final Comparator<Term> HEAVIEST_FIRST = new Comparator<Term>() {
+        @Override
+        public int compare(Term t1, Term t2) {
+            int cmp = Long.compare(t2.weight(), t1.weight());
+            if (cmp != 0) {
+                return cmp;
+            }
+            return t1.compareTo(t2);
+        }
+    };
+
+    private static class Node {
+        private final char c;
+        private Node left, mid, right;
+        private Term[] terms;    // terms whose query ends at this node, or null
+        private Term best;       // heaviest term anywhere in this node's subtree
+        private int count;       // number of terms anywhere in this node's subtree
+
+        Node(char c) {
+            this.c = c;
+        }
+
+        int ownCount() {
+            return terms == null ? 0 : terms.length;
+        }
+    }
+
+    // A pending entry in the best-first top-k walk: either a single term
+    // or a whole subtree summarized by its heaviest term.
+    private static class Candidate {
+        private final Term best;
+        private final Node subtree; // null for a single term
+
+        Candidate(Term best, Node subtree) {
+            this.best = best;
+            this.subtree = subtree;
+        }
+    }
+
+    private Node root;
+    private Term[] emptyQueryTerms = new Term[0]; // terms whose query is ""
+    private final int size;
+
+    // Builds the tree from the given terms.
+    public WeightedTST(Term[] terms) {
+        this.size = terms.length;
+        // Insert in median order of the sorted keys so the sibling links stay balanced
+        Term[] sorted = Arrays.copyOf(terms, terms.length);
+        Arrays.sort(sorted);
+        insertMedians(sorted, 0, sorted.length - 1);
+        summarize(root);
+    }
+
+    private void insertMedians(Term[] sorted, int lo, int hi) {
+        if (lo > hi) return;
+        int mid = lo + (hi - lo) / 2;
+        put(sorted[mid]);
+        insertMedians(sorted, lo, mid - 1);
+        insertMedians(sorted, mid + 1, hi);
+    }
+
+    private void put(Term term) {
+        String key = term.query();
+        if (key.isEmpty()) {
+            emptyQueryTerms = append(emptyQueryTerms, term);
+            return;
+        }
+        if (root == null) {
+            root = new Node(key.charAt(0));
+        }
+        Node x = root;
+        int d = 0;
+        while (true) {
+            char c = key.charAt(d);
+            if (c < x.c) {
+                if (x.left == null) x.left = new Node(c);
+                x = x.left;
+            } else if (c > x.c) {
+                if (x.right == null) x.right = new Node(c);
+                x = x.right;
+            } else if (d < key.length() - 1) {
+                d++;
+                if (x.mid == null) x.mid = new Node(key.charAt(d));
+                x = x.mid;
+            } else {
+                x.terms = x.terms == null ? new Term[] { term } : append(x.terms, term);
+                return;
+            }
+        }
+    }
+
+    private static Term[] append(Term[] a, Term term) {
+        Term[] b = Arrays.copyOf(a, a.length + 1);
+        b[a.length] = term;
+        return b;
+    }
+
+    // Fills in the best term and term count of every node, bottom up.
+    private static void summarize(Node x) {
+        if (x == null) return;
+        summarize(x.left);
+        summarize(x.mid);
+        summarize(x.right);
+
+        x.count = x.ownCount();
+        x.best = null;
+        if (x.terms != null) {
+            for (Term t : x.terms) {
+                x.best = heavier(x.best, t);
+            }
+        }
+        for (Node child : new Node[] { x.left, x.mid, x.right }) {
+            if (child != null) {
+                x.count += child.count;
+                x.best = heavier(x.best, child.best);
+            }
+        }
+    }
+
+    private static Term heavier(Term a, Term b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return HEAVIEST_FIRST.compare(a, b) <= 0 ? a : b;
+    }
+
+    // Returns the node at the end of the given non-empty prefix, or null.
+    private Node find(String prefix) {
+        Node x = root;
+        int d = 0;
+        while (x != null) {
+            char c = prefix.charAt(d);
+            if (c < x.c) {
+                x = x.left;
+            } else if (c > x.c) {
+                x = x.right;
+            } else if (d < prefix.length() - 1) {
+                d++;
+                x = x.mid;
+            } else {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Term[] allMatches(String prefix) {
+        List<Term> matches = new ArrayList<>();
+        if (prefix.isEmpty()) {
+            matches.addAll(Arrays.asList(emptyQueryTerms));
+            collect(root, matches);
+        } else {
+            Node x = find(prefix);
+            if (x == null) {
+                return new Term[0];
+            }
+            if (x.terms != null) {
+                matches.addAll(Arrays.asList(x.terms));
+            }
+            collect(x.mid, matches);
+        }
+
+        // Collected in lexicographic order, so a stable sort matches the sorted-array engine
+        Term[] result = matches.toArray(new Term[0]);
+        Arrays.sort(result, Term.byReverseWeightOrder());
+        return result;
+    }
+
+    // Adds every term in the subtree rooted at x, in lexicographic order.
+    private static void collect(Node x, List<Term> matches) {
+        if (x == null) return;
+        collect(x.left, matches);
+        if (x.terms != null) {
+            matches.addAll(Arrays.asList(x.terms));
+        }
+        collect(x.mid, matches);
+        collect(x.right, matches);
+    }
+
+    @Override
+    public int numberOfMatches(String prefix) {
+        if (prefix.isEmpty()) {
+            return size;
+        }
+        Node x = find(prefix);
+        if (x == null) {
+            return 0;
+        }
+        return x.ownCount() + (x.mid == null ? 0 : x.mid.count);
+    }
+
+    @Override
+    public Term[] topMatches(String prefix, int k) {
+        PriorityQueue<Candidate> pq = new PriorityQueue<>(new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate c1, Candidate c2) {
+                return HEAVIEST_FIRST.compare(c1.best, c2.best);
+            }
+        });
+
+        if (prefix.isEmpty()) {
+            for (Term t : emptyQueryTerms) {
+                pq.add(new Candidate(t, null));
+            }
+            addSubtree(pq, root);
+        } else {
+            Node x = find(prefix);
+            if (x == null) {
+                return new Term[0];
+            }
+            if (x.terms != null) {
+                for (Term t : x.terms) {
+                    pq.add(new Candidate(t, null));
+                }
+            }
+            addSubtree(pq, x.mid);
+        }
+
+        // Best-first walk: a subtree is only expanded once its heaviest
+        // term is the heaviest thing left, so terms stream out in order
+        List<Term> result = new ArrayList<>(Math.min(k, size));
+        while (result.size() < k && !pq.isEmpty()) {
+            Candidate c = pq.poll();
+            if (c.subtree == null) {
+                result.add(c.best);
+                continue;
+            }
+            Node x = c.subtree;
+            if (x.terms != null) {
+                for (Term t : x.terms) {
+                    pq.add(new Candidate(t, null));
+                }
+            }
+            addSubtree(pq, x.left);
+            addSubtree(pq, x.mid);
+            addSubtree(pq, x.right);
+        }
+        return result.toArray(new Term[0]);
+    }
+
+    private static void addSubtree(PriorityQueue<Candidate> pq, Node x) {
+        if (x != null && x.count > 0) {
+            pq.add(new Candidate(x.best, x));
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Term[] terms = {
+            new Term("apple", 100), new Term("app", 80), new Term("application", 120),
+            new Term("banana", 90), new Term("band", 60), new Term("ape", 50)
+        };
+        WeightedTST tst = new WeightedTST(terms);
+        StdOut.println("numberOfMatches(\"ap\") = " + tst.numberOfMatches("ap"));   // Expected: 4
+        StdOut.println("numberOfMatches(\"band\") = " + tst.numberOfMatches("band")); // Expected: 1
+        StdOut.println("numberOfMatches(\"c\") = " + tst.numberOfMatches("c"));      // Expected: 0
+        for (Term t : tst.topMatches("app", 2)) {
+            StdOut.println(t); // Expected: 120 application, 100 apple
+        }
+    }
+}
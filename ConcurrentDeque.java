@@ -0,0 +1,197 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// A lock-free deque that any number of threads may add to and remove from at
+// either end. It is a thin layer over ConcurrentLinkedDeque that keeps the
+// Deque API: null items are rejected and removing from an empty deque throws.
+// For one owner thread feeding many consumers, WorkStealingDeque is cheaper.
+//
+// The size is kept in a LongAdder, which spreads updates over per-thread
+// cells, so counting does not put every add and remove on one contended
+// cache line.
+public class ConcurrentDeque<Item> implements Iterable<Item> {
+    private final ConcurrentLinkedDeque<Item> items = new ConcurrentLinkedDeque<>();
+    private final LongAdder size = new LongAdder();
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    // return the number of items on the deque (a snapshot when others are active)
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size.sum()));
+    }
+
+    // add the item to the front
+    public void addFirst(Item item) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        items.addFirst(item);
+        size.increment();
+    }
+
+    // add the item to the back
+    public void addLast(Item item) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        items.addLast(item);
+        size.increment();
+    }
+
+    // remove and return the item from the front
+    public Item removeFirst() {
+        Item item = items.pollFirst();
+        if (item == null) throw new NoSuchElementException("Deque is empty");
+        size.decrement();
+        return item;
+    }
+
+    // remove and return the item from the back
+    public Item removeLast() {
+        Item item = items.pollLast();
+        if (item == null) throw new NoSuchElementException("Deque is empty");
+        size.decrement();
+        return item;
+    }
+
+    // return a weakly consistent iterator over the items, front to back;
+    // it does not support remove, which would bypass the size count
+    public Iterator<Item> iterator() {
+        final Iterator<Item> it = items.iterator();
+        return new Iterator<Item>() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public Item next() {
+                return it.next();
+            }
+        };
+    }
+
+    // stress test: with producers adding at the back and consumers removing at
+    // the front, nothing may be lost or duplicated, and each consumer must see
+    // every producer's items in the order they were added. Then one thread
+    // works the back end, popping right after some pushes, while consumers
+    // take from the front: every result must fit a sequential history, so the
+    // back pops are LIFO and each consumer's items increase (FIFO)
+    public static void main(String[] args) throws InterruptedException {
+        final int perProducer = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        final int producers = 4;
+        final int consumers = 4;
+        final ConcurrentDeque<Long> deque = new ConcurrentDeque<>();
+        final AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+        final long[] checksums = new long[consumers];
+        final boolean[] ordered = new boolean[consumers];
+
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            final long id = p;
+            threads[p] = new Thread(new Runnable() {
+                public void run() {
+                    for (long i = 0; i < perProducer; i++) {
+                        deque.addLast(id << 32 | i);
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            final int id = c;
+            threads[producers + c] = new Thread(new Runnable() {
+                public void run() {
+                    long[] last = new long[producers];
+                    Arrays.fill(last, -1);
+                    boolean inOrder = true;
+                    long sum = 0;
+                    while (remaining.get() > 0) {
+                        Long item;
+                        try {
+                            item = deque.removeFirst();
+                        } catch (NoSuchElementException e) {
+                            Thread.yield();
+                            continue;
+                        }
+                        remaining.decrementAndGet();
+                        int producer = (int) (item >>> 32);
+                        long sequence = item & 0xFFFFFFFFL;
+                        inOrder &= sequence > last[producer];
+                        last[producer] = sequence;
+                        sum += item;
+                    }
+                    checksums[id] = sum;
+                    ordered[id] = inOrder;
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        long expected = 0;
+        for (long p = 0; p < producers; p++) {
+            for (long i = 0; i < perProducer; i++) expected += p << 32 | i;
+        }
+        long actual = 0;
+        boolean allOrdered = true;
+        for (int c = 0; c < consumers; c++) {
+            actual += checksums[c];
+            allOrdered &= ordered[c];
+        }
+        System.out.println("checksum matches: " + (actual == expected)); // Expected: true
+        System.out.println("per-producer order kept: " + allOrdered);    // Expected: true
+        System.out.println("empty afterwards: " + deque.isEmpty());      // Expected: true
+
+        final int n = producers * perProducer;
+        final AtomicInteger[] taken = new AtomicInteger[n];
+        for (int i = 0; i < n; i++) taken[i] = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        final boolean[] fifo = new boolean[consumers];
+        Thread[] fronts = new Thread[consumers];
+        for (int c = 0; c < consumers; c++) {
+            final int id = c;
+            fronts[c] = new Thread(new Runnable() {
+                public void run() {
+                    boolean inOrder = true;
+                    long last = -1;
+                    while (done.get() == 0 || !deque.isEmpty()) {
+                        try {
+                            long item = deque.removeFirst();
+                            inOrder &= item > last;
+                            last = item;
+                            taken[(int) item].incrementAndGet();
+                        } catch (NoSuchElementException e) {
+                            Thread.yield();
+                        }
+                    }
+                    fifo[id] = inOrder;
+                }
+            });
+            fronts[c].start();
+        }
+        // A front consumer can only have taken item i if it was the last one
+        // left, so the pop either returns i or finds the deque empty
+        boolean lifo = true;
+        for (long i = 0; i < n; i++) {
+            deque.addLast(i);
+            if (i % 3 == 0) {
+                try {
+                    long item = deque.removeLast();
+                    lifo &= item == i;
+                    taken[(int) item].incrementAndGet();
+                } catch (NoSuchElementException e) {
+                    // consumers emptied it first
+                }
+            }
+        }
+        done.set(1);
+        for (Thread t : fronts) t.join();
+        boolean exactlyOnce = true;
+        boolean allFifo = true;
+        for (int i = 0; i < n; i++) exactlyOnce &= taken[i].get() == 1;
+        for (boolean f : fifo) allFifo &= f;
+        System.out.println("back LIFO: " + lifo + ", front FIFO: " + allFifo
+                           + ", each item taken once: " + exactlyOnce); // Expected: true, true, true
+    }
+}
@@ -2,17 +2,47 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 public class Deque<Item> implements Iterable<Item> {
-    private Item[] items;
+    private static final int DEFAULT_CAPACITY = 2;
+    private static final int DEFAULT_SHRINK_DIVISOR = 4;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private Item[] items; // length is always a power of two, so indices wrap with a mask
     private int front;
     private int back;
     private int size;
+    private final int minCapacity;   // never shrink below the initial capacity
+    private final int shrinkDivisor; // halve the array once size <= length / shrinkDivisor
 
     // construct an empty deque
     public Deque() {
-        items = (Item[]) new Object[2]; // Initial capacity of 2
+        this(DEFAULT_CAPACITY, DEFAULT_SHRINK_DIVISOR);
+    }
+
+    // construct an empty deque with room for initialCapacity items
+    public Deque(int initialCapacity) {
+        this(initialCapacity, DEFAULT_SHRINK_DIVISOR);
+    }
+
+    // construct an empty deque with room for initialCapacity items (rounded up
+    // to a power of two) that halves its array once it is at most
+    // 1/shrinkDivisor full; a larger divisor shrinks later and so resizes less
+    // often when the size keeps going up and down
+    public Deque(int initialCapacity, int shrinkDivisor) {
+        if (initialCapacity < 1 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Initial capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (shrinkDivisor < 4) {
+            // Below 4, a halved array could be full again after a single add
+            throw new IllegalArgumentException("Shrink divisor must be at least 4");
+        }
+        int capacity = Integer.highestOneBit(initialCapacity);
+        if (capacity < initialCapacity) capacity *= 2;
+        items = (Item[]) new Object[capacity];
         front = 0;
         back = 0;
         size = 0;
+        minCapacity = capacity;
+        this.shrinkDivisor = shrinkDivisor;
     }
 
     // is the deque empty?
@@ -28,8 +58,8 @@ public class Deque<Item> implements Iterable<Item> {
     // add the item to the front
     public void addFirst(Item item) {
         if (item == null) throw new IllegalArgumentException("Item cannot be null");
-        if (size == items.length) resize(2 * items.length);
-        front = (front - 1 + items.length) % items.length;
+        if (size == items.length) grow();
+        front = (front - 1) & (items.length - 1);
         items[front] = item;
         size++;
     }
@@ -37,9 +67,9 @@ public class Deque<Item> implements Iterable<Item> {
     // add the item to the back
     public void addLast(Item item) {
         if (item == null) throw new IllegalArgumentException("Item cannot be null");
-        if (size == items.length) resize(2 * items.length);
+        if (size == items.length) grow();
         items[back] = item;
-        back = (back + 1) % items.length;
+        back = (back + 1) & (items.length - 1);
         size++;
     }
 
@@ -48,20 +78,20 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty()) throw new NoSuchElementException("Deque is empty");
         Item item = items[front];
         items[front] = null; // Avoid loitering
-        front = (front + 1) % items.length;
+        front = (front + 1) & (items.length - 1);
         size--;
-        if (size > 0 && size == items.length / 4) resize(items.length / 2);
+        shrinkIfSparse();
         return item;
     }
 
     // remove and return the item from the back
     public Item removeLast() {
         if (isEmpty()) throw new NoSuchElementException("Deque is empty");
-        back = (back - 1 + items.length) % items.length;
+        back = (back - 1) & (items.length - 1);
         Item item = items[back];
         items[back] = null; // Avoid loitering
         size--;
-        if (size > 0 && size == items.length / 4) resize(items.length / 2);
+        shrinkIfSparse();
         return item;
     }
 
@@ -78,21 +108,33 @@ public class Deque<Item> implements Iterable<Item> {
             public Item next() {
                 if (!hasNext()) throw new NoSuchElementException("No more items to return");
                 Item item = items[current];
-                current = (current + 1) % items.length;
+                current = (current + 1) & (items.length - 1);
                 count++;
                 return item;
             }
         };
     }
 
+    private void shrinkIfSparse() {
+        if (items.length > minCapacity && size <= items.length / shrinkDivisor) resize(items.length / 2);
+    }
+
+    // Doubles the capacity; checked before doubling, since 2 * MAX_CAPACITY overflows
+    private void grow() {
+        if (items.length == MAX_CAPACITY) throw new IllegalStateException("Deque is full");
+        resize(2 * items.length);
+    }
+
+    // capacity must be a power of two no smaller than size
     private void resize(int capacity) {
         Item[] newItems = (Item[]) new Object[capacity];
-        for (int i = 0; i < size; i++) {
-            newItems[i] = items[(front + i) % items.length];
-        }
+        // At most two copies: from front to the end of the ring, then from its start
+        int first = Math.min(size, items.length - front);
+        System.arraycopy(items, front, newItems, 0, first);
+        System.arraycopy(items, 0, newItems, first, size - first);
         items = newItems;
         front = 0;
-        back = size;
+        back = size & (capacity - 1);
     }
 
     // unit testing (required)
@@ -107,5 +149,31 @@ public class Deque<Item> implements Iterable<Item> {
         for (String s : deque) {
             System.out.println(s); // C D
         }
+
+        // Wrap around both ends, grow and shrink, and check the order survives
+        Deque<Integer> ring = new Deque<>(3, 8);
+        java.util.ArrayDeque<Integer> reference = new java.util.ArrayDeque<>();
+        java.util.Random random = new java.util.Random(13);
+        boolean same = true;
+        for (int i = 0; i < 200_000; i++) {
+            int op = random.nextInt(i % 20_000 < 10_000 ? 5 : 3); // phases that grow, then drain
+            if (op >= 3 || reference.isEmpty()) {
+                if (random.nextBoolean()) {
+                    ring.addFirst(i);
+                    reference.addFirst(i);
+                } else {
+                    ring.addLast(i);
+                    reference.addLast(i);
+                }
+            } else if (op == 0) {
+                same &= ring.removeFirst().equals(reference.removeFirst());
+            } else {
+                same &= ring.removeLast().equals(reference.removeLast());
+            }
+            same &= ring.size() == reference.size();
+        }
+        Iterator<Integer> expected = reference.iterator();
+        for (int item : ring) same &= expected.hasNext() && item == expected.next();
+        System.out.println("matches java.util.ArrayDeque: " + same); // true
     }
 }
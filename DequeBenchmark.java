@@ -0,0 +1,243 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Throughput of the concurrent deques against Deque guarded by a lock, or
+// with "single", single-threaded Deque against java.util.ArrayDeque, or with
+// "pauses", the longest single add while Deque and SegmentedDeque grow.
+// Usage: java DequeBenchmark [maxThreads] [opsPerThread]
+//        java DequeBenchmark single [items]
+//        java DequeBenchmark pauses [items]
+public class DequeBenchmark {
+
+    // One of the deques under test, as seen by the benchmark threads.
+    private interface Buffer {
+        void push(int worker, Integer item);
+        Integer take(int worker); // null if nothing could be taken
+    }
+
+    // Every worker shares one Deque behind a lock
+    private static Buffer lockedDeque() {
+        final Deque<Integer> deque = new Deque<>();
+        return new Buffer() {
+            public void push(int worker, Integer item) {
+                synchronized (deque) {
+                    deque.addLast(item);
+                }
+            }
+
+            public Integer take(int worker) {
+                synchronized (deque) {
+                    return deque.isEmpty() ? null : deque.removeFirst();
+                }
+            }
+        };
+    }
+
+    // Every worker shares one lock-free MPMC deque
+    private static Buffer concurrentDeque() {
+        final ConcurrentDeque<Integer> deque = new ConcurrentDeque<>();
+        return new Buffer() {
+            public void push(int worker, Integer item) {
+                deque.addLast(item);
+            }
+
+            public Integer take(int worker) {
+                try {
+                    return deque.removeFirst();
+                } catch (NoSuchElementException e) {
+                    return null;
+                }
+            }
+        };
+    }
+
+    // Each worker owns a deque and steals from a random other one when it runs dry
+    private static Buffer workStealing(int threads) {
+        final List<WorkStealingDeque<Integer>> deques = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) deques.add(new WorkStealingDeque<Integer>());
+        return new Buffer() {
+            public void push(int worker, Integer item) {
+                deques.get(worker).addLast(item);
+            }
+
+            public Integer take(int worker) {
+                try {
+                    return deques.get(worker).removeLast();
+                } catch (NoSuchElementException e) {
+                    int victim = ThreadLocalRandom.current().nextInt(deques.size());
+                    try {
+                        return deques.get(victim).removeFirst();
+                    } catch (NoSuchElementException empty) {
+                        return null;
+                    }
+                }
+            }
+        };
+    }
+
+    // Runs threads that each push and take opsPerThread items; returns ops per second
+    private static double run(final Buffer buffer, int threads, final int opsPerThread)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int w = 0; w < threads; w++) {
+            final int worker = w;
+            workers[w] = new Thread(new Runnable() {
+                public void run() {
+                    Integer item = worker;
+                    for (int i = 0; i < opsPerThread; i++) {
+                        buffer.push(worker, item);
+                        // Push a burst now and then so there is something to steal
+                        if ((i & 63) == 0) {
+                            for (int j = 0; j < 8; j++) buffer.push(worker, item);
+                        }
+                        buffer.take(worker);
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread t : workers) t.start();
+        for (Thread t : workers) t.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return 2.0 * threads * opsPerThread / seconds;
+    }
+
+    // Single-threaded workloads; each returns a checksum so none of the work is dead code.
+    private static long growAndDrain(Deque<Integer> deque, Integer[] values) {
+        long sum = 0;
+        for (Integer v : values) deque.addLast(v);
+        for (Integer v : deque) sum += v;
+        while (!deque.isEmpty()) sum += deque.removeLast();
+        return sum;
+    }
+
+    private static long growAndDrain(java.util.ArrayDeque<Integer> deque, Integer[] values) {
+        long sum = 0;
+        for (Integer v : values) deque.addLast(v);
+        for (Integer v : deque) sum += v;
+        while (!deque.isEmpty()) sum += deque.removeLast();
+        return sum;
+    }
+
+    // A queue whose size keeps crossing the point where Deque shrinks
+    private static long sawtooth(Deque<Integer> deque, Integer[] values) {
+        long sum = 0;
+        for (int i = 0; i < 64; i++) deque.addLast(values[i]);
+        for (int i = 0; i < values.length; i++) {
+            deque.addLast(values[i]);
+            deque.addFirst(values[i]);
+            sum += deque.removeFirst();
+            sum += deque.removeFirst();
+            if ((i & 1) == 0) {
+                deque.addLast(values[i]);
+            } else {
+                sum += deque.removeLast();
+            }
+        }
+        return sum;
+    }
+
+    private static long sawtooth(java.util.ArrayDeque<Integer> deque, Integer[] values) {
+        long sum = 0;
+        for (int i = 0; i < 64; i++) deque.addLast(values[i]);
+        for (int i = 0; i < values.length; i++) {
+            deque.addLast(values[i]);
+            deque.addFirst(values[i]);
+            sum += deque.removeFirst();
+            sum += deque.removeFirst();
+            if ((i & 1) == 0) {
+                deque.addLast(values[i]);
+            } else {
+                sum += deque.removeLast();
+            }
+        }
+        return sum;
+    }
+
+    private static void single(int n) {
+        Integer[] values = new Integer[n];
+        for (int i = 0; i < n; i++) values[i] = i & 1023; // small Integers are cached
+        System.out.printf("%16s %14s %14s\n", "workload", "Deque ns/op", "ArrayDeque ns/op");
+        long checksum = 0;
+        double[] nanos = new double[4];
+        for (int round = 0; round < 5; round++) { // the first rounds warm up
+            long start = System.nanoTime();
+            checksum += growAndDrain(new Deque<Integer>(), values);
+            nanos[0] = (System.nanoTime() - start) / (3.0 * n);
+            start = System.nanoTime();
+            checksum += growAndDrain(new java.util.ArrayDeque<Integer>(), values);
+            nanos[1] = (System.nanoTime() - start) / (3.0 * n);
+            start = System.nanoTime();
+            checksum += sawtooth(new Deque<Integer>(), values);
+            nanos[2] = (System.nanoTime() - start) / (5.0 * n);
+            start = System.nanoTime();
+            checksum += sawtooth(new java.util.ArrayDeque<Integer>(), values);
+            nanos[3] = (System.nanoTime() - start) / (5.0 * n);
+        }
+        System.out.printf("%16s %14.2f %14.2f\n", "grow and drain", nanos[0], nanos[1]);
+        System.out.printf("%16s %14.2f %14.2f\n", "sawtooth", nanos[2], nanos[3]);
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    // Grows each deque to n items, timing every addLast to find the worst one.
+    // Collections land on whichever add triggers them; run with -Xms equal to
+    // -Xmx to see the resize copies alone.
+    private static void pauses(int n) {
+        Integer item = 42;
+        System.out.printf("%16s %12s %16s\n", "deque", "total ms", "worst add ms");
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            long worst = 0;
+            long start = System.nanoTime();
+            Deque<Integer> deque = new Deque<>();
+            for (int i = 0; i < n; i++) {
+                long t = System.nanoTime();
+                deque.addLast(item);
+                worst = Math.max(worst, System.nanoTime() - t);
+            }
+            long total = System.nanoTime() - start;
+            if (round == 1) System.out.printf("%16s %12.1f %16.3f\n", "Deque", total / 1e6, worst / 1e6);
+            deque = null;
+
+            worst = 0;
+            start = System.nanoTime();
+            SegmentedDeque<Integer> segmented = new SegmentedDeque<>();
+            for (int i = 0; i < n; i++) {
+                long t = System.nanoTime();
+                segmented.addLast(item);
+                worst = Math.max(worst, System.nanoTime() - t);
+            }
+            total = System.nanoTime() - start;
+            if (round == 1) System.out.printf("%16s %12.1f %16.3f\n", "SegmentedDeque", total / 1e6, worst / 1e6);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("single")) {
+            single(args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("pauses")) {
+            pauses(args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000);
+            return;
+        }
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                                         : Runtime.getRuntime().availableProcessors();
+        int opsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        System.out.printf("%8s %18s %18s %18s\n", "threads", "locked Mops/s", "concurrent Mops/s",
+                          "stealing Mops/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            // warm up once, then measure
+            run(lockedDeque(), threads, opsPerThread / 10);
+            run(concurrentDeque(), threads, opsPerThread / 10);
+            run(workStealing(threads), threads, opsPerThread / 10);
+            double locked = run(lockedDeque(), threads, opsPerThread);
+            double concurrent = run(concurrentDeque(), threads, opsPerThread);
+            double stealing = run(workStealing(threads), threads, opsPerThread);
+            System.out.printf("%8d %18.1f %18.1f %18.1f\n", threads, locked / 1e6, concurrent / 1e6,
+                              stealing / 1e6);
+        }
+    }
+}
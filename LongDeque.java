@@ -0,0 +1,148 @@
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+public class LongDeque {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] items; // length is always a power of two, so indices wrap with a mask
+    private int front;
+    private int back;
+    private int size;
+
+    // construct an empty deque
+    public LongDeque() {
+        items = new long[2]; // Initial capacity of 2
+        front = 0;
+        back = 0;
+        size = 0;
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // return the number of items on the deque
+    public int size() {
+        return size;
+    }
+
+    // add the item to the front
+    public void addFirst(long item) {
+        if (size == items.length) grow(1);
+        front = (front - 1) & (items.length - 1);
+        items[front] = item;
+        size++;
+    }
+
+    // add the item to the back
+    public void addLast(long item) {
+        if (size == items.length) grow(1);
+        items[back] = item;
+        back = (back + 1) & (items.length - 1);
+        size++;
+    }
+
+    // add src[off .. off + len) to the back, in order
+    public void addAllLast(long[] src, int off, int len) {
+        if (src == null) throw new IllegalArgumentException("Source cannot be null");
+        if (off < 0 || len < 0 || len > src.length - off) {
+            throw new IndexOutOfBoundsException("Invalid range: off = " + off + ", len = " + len);
+        }
+        grow(len);
+
+        // At most two copies: up to the end of the ring, then from its start
+        int first = Math.min(len, items.length - back);
+        System.arraycopy(src, off, items, back, first);
+        System.arraycopy(src, off + first, items, 0, len - first);
+        back = (back + len) & (items.length - 1);
+        size += len;
+    }
+
+    // remove and return the item from the front
+    public long removeFirst() {
+        if (isEmpty()) throw new NoSuchElementException("Deque is empty");
+        long item = items[front];
+        front = (front + 1) & (items.length - 1);
+        size--;
+        if (size > 0 && size == items.length / 4) resize(items.length / 2);
+        return item;
+    }
+
+    // remove and return the item from the back
+    public long removeLast() {
+        if (isEmpty()) throw new NoSuchElementException("Deque is empty");
+        back = (back - 1) & (items.length - 1);
+        long item = items[back];
+        size--;
+        if (size > 0 && size == items.length / 4) resize(items.length / 2);
+        return item;
+    }
+
+    // remove up to dst.length items from the front into dst, in order;
+    // returns the number of items removed
+    public int drainFirst(long[] dst) {
+        if (dst == null) throw new IllegalArgumentException("Destination cannot be null");
+        int count = Math.min(size, dst.length);
+        int first = Math.min(count, items.length - front);
+        System.arraycopy(items, front, dst, 0, first);
+        System.arraycopy(items, 0, dst, first, count - first);
+        front = (front + count) & (items.length - 1);
+        size -= count;
+        if (size > 0 && size <= items.length / 4) resize(Math.max(2, Integer.highestOneBit(size) * 4));
+        return count;
+    }
+
+    // pass every item to the action, front to back, without allocating
+    public void forEach(LongConsumer action) {
+        if (action == null) throw new IllegalArgumentException("Action cannot be null");
+        int current = front;
+        for (int i = 0; i < size; i++) {
+            action.accept(items[current]);
+            current = (current + 1) & (items.length - 1);
+        }
+    }
+
+    // Doubles the capacity until len more items fit, counting in long so the
+    // doubling cannot overflow past MAX_CAPACITY
+    private void grow(int len) {
+        long capacity = items.length;
+        while (capacity - size < len) capacity *= 2;
+        if (capacity > MAX_CAPACITY) throw new IllegalStateException("Deque is full");
+        if (capacity != items.length) resize((int) capacity);
+    }
+
+    private void resize(int capacity) {
+        long[] newItems = new long[capacity];
+        int first = Math.min(size, items.length - front);
+        System.arraycopy(items, front, newItems, 0, first);
+        System.arraycopy(items, 0, newItems, first, size - first);
+        items = newItems;
+        front = 0;
+        back = size & (capacity - 1);
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        LongDeque deque = new LongDeque();
+        deque.addFirst(1);
+        deque.addLast(2);
+        System.out.println(deque.removeFirst()); // 1
+        System.out.println(deque.removeLast());  // 2
+
+        deque.addAllLast(new long[] { 9, 3, 4, 5, 9 }, 1, 3);
+        deque.addFirst(2);
+        final StringBuilder sb = new StringBuilder();
+        deque.forEach(new LongConsumer() {
+            public void accept(long value) {
+                sb.append(value).append(' ');
+            }
+        });
+        System.out.println(sb.toString().trim()); // 2 3 4 5
+
+        long[] dst = new long[3];
+        int drained = deque.drainFirst(dst);
+        System.out.println(drained + " drained, " + deque.size() + " left"); // 3 drained, 1 left
+        System.out.println(deque.removeFirst()); // 5
+    }
+}
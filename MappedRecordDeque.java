@@ -0,0 +1,280 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// A bounded deque of fixed-width byte records kept in a memory-mapped file
+// rather than on the heap, so a queue can outgrow the heap and outlive the
+// process. Records sit in a ring of capacity slots after a small header.
+//
+// The header holds head and tail as ever-moving positions: the records are
+// at positions head .. tail - 1, each in slot position mod capacity. Adding
+// at the back writes the record and then stores tail + 1, one aligned 8-byte
+// write; the front works the same way with head. A process that dies at any
+// point therefore reopens with every completed operation and no torn one.
+// The operating system writes mapped pages back in its own time; call force
+// to make the current state survive a machine crash as well.
+//
+// peekFirst, peekLast and the iterator return read-only views of the mapped
+// records without copying. A view shows whatever later occupies its slot, so
+// copy it before removing the record. removeFirst and removeLast return copies.
+//
+// Like Deque, this class is not thread-safe. Only one instance should have a
+// given file open at a time.
+public class MappedRecordDeque implements Iterable<ByteBuffer>, AutoCloseable {
+    // File layout, little-endian:
+    //   header: int MAGIC, int VERSION, int recordSize, int capacity, long head, long tail
+    //   slots:  capacity records of recordSize bytes, starting at HEADER_BYTES
+    private static final int MAGIC = 0x44455155; // "DEQU"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;  // rounded up so the slots start aligned
+    private static final int HEAD = 16;
+    private static final int TAIL = 24;
+
+    // Each mapping is under 2 GB, so larger files are mapped in regions
+    // holding a whole number of records
+    private static final int MAX_REGION_BYTES = 1 << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] regions;
+    private final int recordSize;
+    private final int capacity;
+    private final int recordsPerRegion;
+    private long head;
+    private long tail;
+
+    private MappedRecordDeque(FileChannel channel, int recordSize, int capacity) throws IOException {
+        this.channel = channel;
+        this.recordSize = recordSize;
+        this.capacity = capacity;
+        this.recordsPerRegion = Math.min(capacity, MAX_REGION_BYTES / recordSize);
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        int regionCount = (capacity + recordsPerRegion - 1) / recordsPerRegion;
+        this.regions = new MappedByteBuffer[regionCount];
+        for (int r = 0; r < regionCount; r++) {
+            int records = Math.min(recordsPerRegion, capacity - r * recordsPerRegion);
+            long position = HEADER_BYTES + (long) r * recordsPerRegion * recordSize;
+            regions[r] = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) records * recordSize);
+        }
+    }
+
+    // Creates (or replaces) the file as an empty deque of capacity records of recordSize bytes each.
+    public static MappedRecordDeque create(Path path, int recordSize, int capacity) throws IOException {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        if (recordSize <= 0 || recordSize > MAX_REGION_BYTES) {
+            throw new IllegalArgumentException("Record size must be between 1 and " + MAX_REGION_BYTES);
+        }
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedRecordDeque deque = new MappedRecordDeque(channel, recordSize, capacity);
+            deque.header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, recordSize).putInt(12, capacity);
+            deque.header.putLong(HEAD, 0).putLong(TAIL, 0);
+            return deque;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Opens a deque file written by create, with the records it held when last changed.
+    public static MappedRecordDeque open(Path path) throws IOException {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IllegalArgumentException(path + " is not a deque file");
+            }
+            ByteBuffer fields = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            int recordSize = fields.getInt(8);
+            int capacity = fields.getInt(12);
+            long head = fields.getLong(HEAD);
+            long tail = fields.getLong(TAIL);
+            if (fields.getInt(0) != MAGIC || fields.getInt(4) != VERSION) {
+                throw new IllegalArgumentException(path + " is not a deque file");
+            }
+            if (recordSize <= 0 || capacity <= 0 || tail - head < 0 || tail - head > capacity
+                || channel.size() < HEADER_BYTES + (long) recordSize * capacity) {
+                throw new IllegalArgumentException(path + " is truncated or corrupt");
+            }
+            MappedRecordDeque deque = new MappedRecordDeque(channel, recordSize, capacity);
+            deque.head = head;
+            deque.tail = tail;
+            return deque;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    // is every slot in use?
+    public boolean isFull() {
+        return tail - head == capacity;
+    }
+
+    // return the number of records on the deque
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    // return the maximum number of records
+    public int capacity() {
+        return capacity;
+    }
+
+    // return the number of bytes in every record
+    public int recordSize() {
+        return recordSize;
+    }
+
+    // add the record (the remaining bytes of the buffer) to the front
+    public void addFirst(ByteBuffer record) {
+        checkRecord(record);
+        slot(head - 1).put(record.duplicate());
+        head--;
+        header.putLong(HEAD, head); // Publishes the record
+    }
+
+    // add the record (the remaining bytes of the buffer) to the back
+    public void addLast(ByteBuffer record) {
+        checkRecord(record);
+        slot(tail).put(record.duplicate());
+        tail++;
+        header.putLong(TAIL, tail); // Publishes the record
+    }
+
+    // remove the record from the front and return a copy of it
+    public ByteBuffer removeFirst() {
+        ByteBuffer copy = copy(peekFirst());
+        head++;
+        header.putLong(HEAD, head);
+        return copy;
+    }
+
+    // remove the record from the back and return a copy of it
+    public ByteBuffer removeLast() {
+        ByteBuffer copy = copy(peekLast());
+        tail--;
+        header.putLong(TAIL, tail);
+        return copy;
+    }
+
+    // return a read-only view of the record at the front, without copying
+    public ByteBuffer peekFirst() {
+        if (isEmpty()) throw new NoSuchElementException("Deque is empty");
+        return slot(head).asReadOnlyBuffer();
+    }
+
+    // return a read-only view of the record at the back, without copying
+    public ByteBuffer peekLast() {
+        if (isEmpty()) throw new NoSuchElementException("Deque is empty");
+        return slot(tail - 1).asReadOnlyBuffer();
+    }
+
+    // return an iterator over read-only views of the records, front to back
+    public Iterator<ByteBuffer> iterator() {
+        return new Iterator<ByteBuffer>() {
+            private long current = head;
+
+            public boolean hasNext() {
+                return current < tail;
+            }
+
+            public ByteBuffer next() {
+                if (!hasNext()) throw new NoSuchElementException("No more records to return");
+                return slot(current++).asReadOnlyBuffer();
+            }
+        };
+    }
+
+    // write every change so far through to the storage device
+    public void force() {
+        for (MappedByteBuffer region : regions) region.force();
+        header.force();
+    }
+
+    // close the file; the mapped pages are written back by the operating system
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void checkRecord(ByteBuffer record) {
+        if (record == null) throw new IllegalArgumentException("Record cannot be null");
+        if (record.remaining() != recordSize) {
+            throw new IllegalArgumentException("Record must be " + recordSize + " bytes, not " + record.remaining());
+        }
+        if (isFull()) throw new IllegalStateException("Deque is full");
+    }
+
+    // Returns a writable view of exactly the slot at the given position
+    private ByteBuffer slot(long position) {
+        int slot = (int) Math.floorMod(position, (long) capacity);
+        ByteBuffer view = regions[slot / recordsPerRegion].duplicate();
+        int offset = (slot % recordsPerRegion) * recordSize;
+        view.limit(offset + recordSize).position(offset);
+        return view.slice();
+    }
+
+    private static ByteBuffer copy(ByteBuffer view) {
+        ByteBuffer copy = ByteBuffer.allocate(view.remaining());
+        copy.put(view).flip();
+        return copy;
+    }
+
+    private static ByteBuffer record(long value) {
+        ByteBuffer record = ByteBuffer.allocate(8);
+        record.putLong(0, value);
+        return record;
+    }
+
+    // unit testing
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("deque", ".bin");
+        try {
+            MappedRecordDeque deque = MappedRecordDeque.create(file, 8, 4);
+            deque.addLast(record(2));
+            deque.addLast(record(3));
+            deque.addFirst(record(1)); // wraps around to the last slot
+            System.out.println(deque.removeFirst().getLong(0)); // 1
+            deque.addLast(record(4));
+            deque.addLast(record(5)); // reuses the slot 1 was in
+            try {
+                deque.addLast(record(6));
+            } catch (IllegalStateException e) {
+                System.out.println("full at " + deque.size()); // full at 4
+            }
+            System.out.println(deque.removeLast().getLong(0)); // 5
+            deque.force();
+            deque.close();
+
+            // Reopening sees the same records, in the same order
+            MappedRecordDeque reopened = MappedRecordDeque.open(file);
+            StringBuilder sb = new StringBuilder();
+            for (ByteBuffer record : reopened) {
+                sb.append(record.getLong(0)).append(' ');
+            }
+            System.out.println(sb.toString().trim()); // 2 3 4
+
+            ByteBuffer view = reopened.peekFirst();
+            System.out.println(view.isReadOnly() + " " + view.getLong(0)); // true 2
+            reopened.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+import edu.princeton.cs.algs4.StdRandom;
+
+// The same model and API as Percolation in about a third of the memory, for
+// grids too large for it.
+//
+// Percolation keeps a boolean per site and two weighted union-finds, one
+// with a virtual bottom site and one without (so that sites connected only
+// through the bottom are not reported full): about 17 bytes per site. Here
+// open sites are bits in a long[], and a single union-find keeps, in one byte
+// per root, its rank and whether the component touches the top and the
+// bottom row. A site is full when its root touches the top, and the system
+// percolates once any root touches both: about 5 bytes per site.
+public class CompactPercolation {
+    // n * n sites must be indexable by an int
+    private static final int MAX_N = 46340;
+
+    // Low bits of state[root]; the rank sits above them
+    private static final byte TOP = 1;
+    private static final byte BOTTOM = 2;
+    private static final int RANK_SHIFT = 2;
+
+    private final int n;
+    private final long[] open;    // bit i is set if site i is open
+    private final int[] parent;   // parent[i] is meaningful only once site i is open
+    private final byte[] state;   // rank << RANK_SHIFT | TOP | BOTTOM, kept up to date at roots
+    private int openSites;
+    private boolean percolates;
+
+    // creates n-by-n grid, with all sites initially blocked
+    public CompactPercolation(int n) {
+        if (n <= 0 || n > MAX_N) {
+            throw new IllegalArgumentException("n must be between 1 and " + MAX_N);
+        }
+        this.n = n;
+        this.open = new long[(n * n + 63) >>> 6];
+        this.parent = new int[n * n];
+        this.state = new byte[n * n];
+        this.openSites = 0;
+        this.percolates = false;
+    }
+
+    // opens the site (row, col) if it is not open already
+    public void open(int row, int col) {
+        validateIndices(row, col);
+        int index = getIndex(row, col);
+        if (!isOpen(index)) {
+            openUnchecked(index);
+        }
+    }
+
+    // opens the site at row * n + col, which the caller guarantees is in
+    // range and not yet open; for trial loops that open each site exactly once
+    void openUnchecked(int index) {
+        int row = index / n;
+        int col = index - row * n;
+        open[index >>> 6] |= 1L << index;
+        openSites++;
+        parent[index] = index;
+        state[index] = (byte) ((row == 0 ? TOP : 0) | (row == n - 1 ? BOTTOM : 0));
+
+        // connect to open neighbors
+        if (row > 0 && isOpen(index - n)) {
+            union(index, index - n);
+        }
+        if (row < n - 1 && isOpen(index + n)) {
+            union(index, index + n);
+        }
+        if (col > 0 && isOpen(index - 1)) {
+            union(index, index - 1);
+        }
+        if (col < n - 1 && isOpen(index + 1)) {
+            union(index, index + 1);
+        }
+
+        if ((state[find(index)] & (TOP | BOTTOM)) == (TOP | BOTTOM)) {
+            percolates = true;
+        }
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        validateIndices(row, col);
+        return isOpen(getIndex(row, col));
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        validateIndices(row, col);
+        int index = getIndex(row, col);
+        return isOpen(index) && (state[find(index)] & TOP) != 0;
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        return openSites;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return percolates;
+    }
+
+    private boolean isOpen(int index) {
+        return (open[index >>> 6] & (1L << index)) != 0;
+    }
+
+    // Returns the root of the site's component, halving the path on the way
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // Links the lower-ranked root under the other; the surviving root takes
+    // both components' top and bottom flags
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) {
+            return;
+        }
+        int rankP = state[rootP] >>> RANK_SHIFT;
+        int rankQ = state[rootQ] >>> RANK_SHIFT;
+        int flags = (state[rootP] | state[rootQ]) & (TOP | BOTTOM);
+        if (rankP < rankQ) {
+            parent[rootP] = rootQ;
+            state[rootQ] = (byte) (rankQ << RANK_SHIFT | flags);
+        } else {
+            parent[rootQ] = rootP;
+            if (rankP == rankQ) {
+                rankP++; // at most log2(n * n) < 32, so it fits above the flags
+            }
+            state[rootP] = (byte) (rankP << RANK_SHIFT | flags);
+        }
+    }
+
+    // validate that i and j are valid indices
+    private void validateIndices(int i, int j) {
+        if (i < 0 || i >= n || j < 0 || j >= n) {
+            throw new IllegalArgumentException("Index out of bounds");
+        }
+    }
+
+    // get the index of the site in the bitset and union-find arrays
+    private int getIndex(int row, int col) {
+        return row * n + col;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // unit testing, then memory and speed against Percolation on an n-by-n grid
+    // (default 2000); run with a large enough -Xmx for Percolation at that size
+    public static void main(String[] args) {
+        CompactPercolation percolation = new CompactPercolation(3);
+        percolation.open(0, 1);
+        percolation.open(1, 1);
+        percolation.open(2, 2);
+        System.out.println("Is (1,1) full? " + percolation.isFull(1, 1));         // true
+        System.out.println("Does the system percolate? " + percolation.percolates()); // false
+        percolation.open(2, 0);
+        percolation.open(2, 1);
+        System.out.println("Does the system percolate? " + percolation.percolates()); // true
+        percolation.open(0, 2);
+        System.out.println("Is (0,2) full? " + percolation.isFull(0, 2));           // true
+        System.out.println("Number of open sites: " + percolation.numberOfOpenSites()); // 6
+
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int[] sites = new int[n * n];
+        for (int i = 0; i < sites.length; i++) {
+            sites[i] = i;
+        }
+        StdRandom.shuffle(sites);
+
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            long before = usedMemory();
+            Percolation original = new Percolation(n);
+            long originalBytes = usedMemory() - before;
+            long start = System.nanoTime();
+            int opened = 0;
+            while (!original.percolates()) {
+                int site = sites[opened++];
+                original.open(site / n, site % n);
+            }
+            double originalRate = opened / ((System.nanoTime() - start) / 1e9);
+            original = null;
+
+            before = usedMemory();
+            CompactPercolation compact = new CompactPercolation(n);
+            long compactBytes = usedMemory() - before;
+            start = System.nanoTime();
+            opened = 0;
+            while (!compact.percolates()) {
+                int site = sites[opened++];
+                compact.open(site / n, site % n);
+            }
+            double compactRate = opened / ((System.nanoTime() - start) / 1e9);
+
+            if (round == 1) {
+                double perSite = (double) n * n;
+                System.out.printf("n = %d, percolated after %d opens\n", n, opened);
+                System.out.printf("Percolation:        %5.2f bytes/site, %6.2f M opens/sec\n",
+                                  originalBytes / perSite, originalRate / 1e6);
+                System.out.printf("CompactPercolation: %5.2f bytes/site, %6.2f M opens/sec\n",
+                                  compactBytes / perSite, compactRate / 1e6);
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.StdStats;
+import edu.princeton.cs.algs4.Stopwatch;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Percolation statistics by the Newman-Ziff method: each trial opens every
+// site of an n-by-n grid in a random order, keeping one union-find as it
+// goes, and notes the exact step at which the top and bottom first connect.
+// That single sweep yields, for every number k of open sites at once:
+//   - whether the grid spans, giving the spanning probability curve,
+//   - the largest cluster, and
+//   - the sum of squared cluster sizes, giving the mean size of the cluster
+//     that holds a random open site.
+// Keeping the whole cluster-size distribution for every k would take n^4
+// counters, so these summaries stand in for it.
+//
+// Averages over trials at a fixed k are taken as they are; the methods
+// taking a site-open probability p instead weight them by the binomial
+// distribution of k, giving the curves for independently opened sites.
+//
+// All arrays are allocated once and reused by every trial.
+public class NewmanZiff {
+    private static final double CONFIDENCE_95 = 1.96;
+    private static final int MAX_N = 46340;             // n * n sites must be indexable by an int
+    private static final int EMPTY = Integer.MIN_VALUE; // parent of a site not yet open
+    private static final byte TOP = 1;
+    private static final byte BOTTOM = 2;
+
+    private final int n;
+    private final int sites;
+    private final int trials;
+    private final double[] thresholds;
+
+    // Per-trial scratch
+    private final int[] order;    // the random opening order
+    private final int[] parent;   // parent, or minus the cluster size at a root
+    private final byte[] touches; // TOP | BOTTOM, kept up to date at roots
+    private long squares;         // sum of squared cluster sizes so far
+
+    // Sums over trials, indexed by the number of open sites
+    private final long[] spanning;     // trials spanning
+    private final double[] largestSum; // largest cluster size
+    private final double[] squaresSum; // sum of squared cluster sizes
+
+    // perform independent sweeps on an n-by-n grid, seeded from StdRandom
+    public NewmanZiff(int n, int trials) {
+        this(n, trials, StdRandom.uniform(Long.MAX_VALUE));
+    }
+
+    // perform independent sweeps on an n-by-n grid; the results depend on the seed alone
+    public NewmanZiff(int n, int trials, long seed) {
+        if (n <= 0 || trials <= 0) {
+            throw new IllegalArgumentException("n and trials must be greater than 0");
+        }
+        if (n > MAX_N) {
+            throw new IllegalArgumentException("n must be at most " + MAX_N);
+        }
+        this.n = n;
+        this.sites = n * n;
+        this.trials = trials;
+        this.thresholds = new double[trials];
+        this.order = new int[sites];
+        this.parent = new int[sites];
+        this.touches = new byte[sites];
+        this.spanning = new long[sites + 1];
+        this.largestSum = new double[sites + 1];
+        this.squaresSum = new double[sites + 1];
+
+        for (int i = 0; i < sites; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] firstSpanning = new long[sites + 1];
+        for (int t = 0; t < trials; t++) {
+            int step = sweep(random);
+            firstSpanning[step]++;
+            thresholds[t] = (double) step / sites;
+        }
+        // A grid that spans keeps spanning as more sites open
+        long total = 0;
+        for (int k = 0; k <= sites; k++) {
+            total += firstSpanning[k];
+            spanning[k] = total;
+        }
+    }
+
+    // Opens every site in a fresh random order, adding this trial's clusters
+    // to the sums; returns the number of open sites at which the grid first spans
+    private int sweep(SplittableRandom random) {
+        // Shuffling the previous order gives a uniformly random order just the same
+        for (int i = sites - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        Arrays.fill(parent, EMPTY);
+        squares = 0;
+
+        int firstSpanning = 0;
+        int largest = 0;
+        for (int k = 1; k <= sites; k++) {
+            int site = order[k - 1];
+            int row = site / n;
+            int col = site - row * n;
+            parent[site] = -1;
+            touches[site] = (byte) ((row == 0 ? TOP : 0) | (row == n - 1 ? BOTTOM : 0));
+            squares++;
+
+            // connect to open neighbors
+            int root = site;
+            if (row > 0) root = union(root, site - n);
+            if (row < n - 1) root = union(root, site + n);
+            if (col > 0) root = union(root, site - 1);
+            if (col < n - 1) root = union(root, site + 1);
+
+            largest = Math.max(largest, -parent[root]);
+            if (firstSpanning == 0 && touches[root] == (TOP | BOTTOM)) {
+                firstSpanning = k;
+            }
+            largestSum[k] += largest;
+            squaresSum[k] += squares;
+        }
+        return firstSpanning;
+    }
+
+    // Returns the root of the site's cluster, halving the path on the way
+    private int find(int i) {
+        while (parent[i] >= 0) {
+            int next = parent[i];
+            if (parent[next] >= 0) {
+                parent[i] = parent[next];
+            }
+            i = next;
+        }
+        return i;
+    }
+
+    // Merges the cluster of the given root with the neighbor's, if the
+    // neighbor is open; returns the root of the result
+    private int union(int root, int neighbor) {
+        if (parent[neighbor] == EMPTY) {
+            return root;
+        }
+        int other = find(neighbor);
+        if (other == root) {
+            return root;
+        }
+        int size = -parent[root];
+        int otherSize = -parent[other];
+        squares += 2L * size * otherSize; // (a + b)^2 replaces a^2 + b^2
+        if (size < otherSize) {
+            int swap = root;
+            root = other;
+            other = swap;
+        }
+        parent[root] = -(size + otherSize);
+        parent[other] = root;
+        touches[root] |= touches[other];
+        return root;
+    }
+
+    // sample mean of percolation threshold
+    public double mean() {
+        return StdStats.mean(thresholds);
+    }
+
+    // sample standard deviation of percolation threshold
+    public double stddev() {
+        return StdStats.stddev(thresholds);
+    }
+
+    // low endpoint of 95% confidence interval
+    public double confidenceLow() {
+        return mean() - ((CONFIDENCE_95 * stddev()) / Math.sqrt(trials));
+    }
+
+    // high endpoint of 95% confidence interval
+    public double confidenceHigh() {
+        return mean() + ((CONFIDENCE_95 * stddev()) / Math.sqrt(trials));
+    }
+
+    // fraction of trials that spanned with exactly k sites open
+    public double spanningProbability(int k) {
+        validateOpenCount(k);
+        return (double) spanning[k] / trials;
+    }
+
+    // probability of spanning when each site is open with probability p
+    public double spanningProbability(double p) {
+        validateProbability(p);
+        return convolve(spanning, null, p) / trials;
+    }
+
+    // mean size of the largest cluster with exactly k sites open, as a fraction of all sites
+    public double largestClusterFraction(int k) {
+        validateOpenCount(k);
+        return largestSum[k] / trials / sites;
+    }
+
+    // mean size of the largest cluster, as a fraction of all sites, when each
+    // site is open with probability p
+    public double largestClusterFraction(double p) {
+        validateProbability(p);
+        return convolve(null, largestSum, p) / trials / sites;
+    }
+
+    // mean size of the cluster holding a randomly chosen open site, with exactly k sites open
+    public double meanClusterSize(int k) {
+        validateOpenCount(k);
+        return k == 0 ? 0.0 : squaresSum[k] / trials / k;
+    }
+
+    // Weights the per-k sums (one of the two arrays) by the binomial
+    // probability of k open sites, working out from the most likely k with
+    // the ratio of neighboring terms until they stop mattering
+    private double convolve(long[] counts, double[] sums, double p) {
+        if (p == 0.0 || p == 1.0) {
+            int k = p == 0.0 ? 0 : sites;
+            return counts != null ? counts[k] : sums[k];
+        }
+        int mode = (int) Math.min(sites, Math.floor((sites + 1) * p));
+        double odds = p / (1 - p);
+        double weightSum = 1.0;
+        double total = counts != null ? counts[mode] : sums[mode];
+        double weight = 1.0;
+        for (int k = mode; k < sites && weight > 1e-18 * weightSum; k++) {
+            weight *= (double) (sites - k) / (k + 1) * odds;
+            weightSum += weight;
+            total += weight * (counts != null ? counts[k + 1] : sums[k + 1]);
+        }
+        weight = 1.0;
+        for (int k = mode; k > 0 && weight > 1e-18 * weightSum; k--) {
+            weight *= (double) k / (sites - k + 1) / odds;
+            weightSum += weight;
+            total += weight * (counts != null ? counts[k - 1] : sums[k - 1]);
+        }
+        return total / weightSum;
+    }
+
+    private void validateOpenCount(int k) {
+        if (k < 0 || k > sites) {
+            throw new IllegalArgumentException("k must be between 0 and " + sites);
+        }
+    }
+
+    private static void validateProbability(double p) {
+        if (!(p >= 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException("p must be between 0 and 1");
+        }
+    }
+
+    // test client: java NewmanZiff n trials [seed]
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+
+        Stopwatch stopwatch = new Stopwatch();
+        NewmanZiff stats = args.length > 2 ? new NewmanZiff(n, trials, Long.parseLong(args[2]))
+                                           : new NewmanZiff(n, trials);
+        double elapsedTime = stopwatch.elapsedTime();
+
+        System.out.printf("mean()           = %f\n", stats.mean());
+        System.out.printf("stddev()         = %f\n", stats.stddev());
+        System.out.printf("confidenceLow()  = %f\n", stats.confidenceLow());
+        System.out.printf("confidenceHigh() = %f\n", stats.confidenceHigh());
+        System.out.printf("elapsed time     = %.3f\n", elapsedTime);
+
+        System.out.println();
+        System.out.printf("%6s %12s %16s\n", "p", "P(spanning)", "largest cluster");
+        for (int i = 50; i <= 70; i += 2) {
+            double p = i / 100.0;
+            System.out.printf("%6.2f %12.4f %16.4f\n", p, stats.spanningProbability(p),
+                              stats.largestClusterFraction(p));
+        }
+    }
+}
@@ -1,66 +1,276 @@
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
 import edu.princeton.cs.algs4.Stopwatch;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class PercolationStats {
     private static final double CONFIDENCE_95 = 1.96;
-    private final double[] thresholds;
+    // The adaptive constructor runs at least this many trials before trusting
+    // the sample standard deviation in its stopping rule
+    private static final int MIN_ADAPTIVE_TRIALS = 10;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+    // Computed once, as the trials finish
     private final int trials;
+    private final double mean;
+    private final double stddev;
 
     // perform independent trials on an n-by-n grid
     public PercolationStats(int n, int trials) {
         if (n <= 0 || trials <= 0) {
             throw new IllegalArgumentException("n and trials must be greater than 0");
         }
+        // One stream for every trial, seeded from StdRandom so StdRandom.setSeed still applies
+        SplittableRandom random = new SplittableRandom(StdRandom.uniform(Long.MAX_VALUE));
+        TrialEngine engine = new TrialEngine(n);
+        RunningStats stats = new RunningStats();
+        for (int t = 0; t < trials; t++) {
+            stats.add(engine.run(random));
+        }
         this.trials = trials;
-        this.thresholds = new double[trials];
+        this.mean = stats.mean;
+        this.stddev = stats.stddev();
+    }
 
+    // perform independent trials on an n-by-n grid, spread over parallelism
+    // threads; each trial draws from its own stream split off the seed, so the
+    // results depend on the seed alone and not on the thread count
+    public PercolationStats(int n, int trials, long seed, int parallelism) {
+        if (n <= 0 || trials <= 0) {
+            throw new IllegalArgumentException("n and trials must be greater than 0");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be greater than 0");
+        }
+        double[] thresholds = new double[trials];
+
+        // Split every stream up front, in trial order, before any thread runs
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[trials];
         for (int t = 0; t < trials; t++) {
-            Percolation percolation = new Percolation(n);
-            while (!percolation.percolates()) {
-                int row = StdRandom.uniform(n); // 0-based
-                int col = StdRandom.uniform(n); // 0-based
-                if (!percolation.isOpen(row, col)) {
-                    percolation.open(row, col);
+            randoms[t] = root.split();
+        }
+        // A few tasks per thread, so a slow one does not leave the others idle
+        int chunk = Math.max(1, trials / (4 * parallelism));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new TrialTask(n, randoms, thresholds, 0, trials, chunk));
+        } finally {
+            pool.shutdown();
+        }
+
+        // Summed in trial order, so the rounding does not depend on the threads either
+        RunningStats stats = new RunningStats();
+        for (double threshold : thresholds) {
+            stats.add(threshold);
+        }
+        this.trials = trials;
+        this.mean = stats.mean;
+        this.stddev = stats.stddev();
+    }
+
+    // Told about an adaptive run's progress about once a second
+    public interface Progress {
+        void report(int trials, double mean, double halfWidth, double seconds);
+    }
+
+    // perform trials on an n-by-n grid until the 95% confidence interval is
+    // within tolerance of the mean on either side, or maxSeconds have passed,
+    // whichever comes first. Use trials() to see how many ran.
+    public PercolationStats(int n, double tolerance, double maxSeconds, long seed) {
+        this(n, tolerance, maxSeconds, seed, null);
+    }
+
+    // as above, reporting to progress, if it is not null, while the trials run
+    public PercolationStats(int n, double tolerance, double maxSeconds, long seed, Progress progress) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be greater than 0");
+        }
+        if (!(tolerance > 0) || !(maxSeconds > 0)) {
+            throw new IllegalArgumentException("tolerance and maxSeconds must be greater than 0");
+        }
+        long start = System.nanoTime();
+        long deadline = start + (long) Math.min(maxSeconds * 1e9, Long.MAX_VALUE / 2);
+        long nextReport = start + PROGRESS_INTERVAL_NANOS;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        TrialEngine engine = new TrialEngine(n);
+        RunningStats stats = new RunningStats();
+        while (true) {
+            stats.add(engine.run(random));
+            long now = System.nanoTime();
+            double halfWidth = CONFIDENCE_95 * stats.stddev() / Math.sqrt(stats.count);
+            if (stats.count >= MIN_ADAPTIVE_TRIALS && halfWidth <= tolerance) {
+                break;
+            }
+            if (now - deadline >= 0 && stats.count >= 2) {
+                break;
+            }
+            if (progress != null && now - nextReport >= 0) {
+                progress.report(stats.count, stats.mean, halfWidth, (now - start) / 1e9);
+                nextReport = now + PROGRESS_INTERVAL_NANOS;
+            }
+        }
+        this.trials = stats.count;
+        this.mean = stats.mean;
+        this.stddev = stats.stddev();
+    }
+
+    // Welford's running mean and sum of squared deviations, which stay
+    // accurate without keeping the samples
+    private static class RunningStats {
+        private int count;
+        private double mean;
+        private double m2;
+
+        void add(double x) {
+            count++;
+            double delta = x - mean;
+            mean += delta / count;
+            m2 += delta * (x - mean);
+        }
+
+        // sample standard deviation; NaN for a single sample, as StdStats gives
+        double stddev() {
+            return Math.sqrt(m2 / (count - 1));
+        }
+    }
+
+    // Runs trials [from, to), halving the range down to chunks that each
+    // share one TrialEngine
+    private static class TrialTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int n;
+        private final SplittableRandom[] randoms;
+        private final double[] thresholds;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        TrialTask(int n, SplittableRandom[] randoms, double[] thresholds, int from, int to, int chunk) {
+            this.n = n;
+            this.randoms = randoms;
+            this.thresholds = thresholds;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunk) {
+                int mid = from + (to - from) / 2;
+                invokeAll(new TrialTask(n, randoms, thresholds, from, mid, chunk),
+                          new TrialTask(n, randoms, thresholds, mid, to, chunk));
+            } else {
+                TrialEngine engine = new TrialEngine(n);
+                for (int t = from; t < to; t++) {
+                    thresholds[t] = engine.run(randoms[t]);
                 }
             }
-            thresholds[t] = (double) percolation.numberOfOpenSites() / (n * n);
+        }
+    }
+
+    // Runs trials by opening the sites in random order, with no repeats: a
+    // Fisher-Yates shuffle drawn one site at a time, stopping at percolation.
+    // Drawing random sites and skipping open ones wastes over a third of the
+    // draws near the threshold. Sites open through CompactPercolation's
+    // unchecked path, and its percolates() is a field read, so checking after
+    // every open costs nothing. The permutation array is reused from trial to
+    // trial, but restarts from the identity so that a trial's result depends
+    // only on its random stream, not on which trials ran before it.
+    static class TrialEngine {
+        private final int n;
+        private final int[] sites;
+
+        TrialEngine(int n) {
+            this.n = n;
+            this.sites = new int[n * n];
+        }
+
+        // runs one trial; returns the fraction of sites open at percolation
+        double run(SplittableRandom random) {
+            CompactPercolation percolation = new CompactPercolation(n);
+            int total = sites.length;
+            for (int i = 0; i < total; i++) {
+                sites[i] = i;
+            }
+            for (int opened = 0; opened < total; opened++) {
+                int j = opened + random.nextInt(total - opened);
+                int site = sites[j];
+                sites[j] = sites[opened];
+                sites[opened] = site;
+                percolation.openUnchecked(site);
+                if (percolation.percolates()) {
+                    return (double) (opened + 1) / total;
+                }
+            }
+            throw new IllegalStateException("Fully open grid does not percolate");
         }
     }
 
     // sample mean of percolation threshold
     public double mean() {
-        return StdStats.mean(thresholds);
+        return mean;
     }
 
     // sample standard deviation of percolation threshold
     public double stddev() {
-        return StdStats.stddev(thresholds);
+        return stddev;
+    }
+
+    // number of trials run
+    public int trials() {
+        return trials;
     }
 
     // low endpoint of 95% confidence interval
     public double confidenceLow() {
-        return mean() - ((CONFIDENCE_95 * stddev()) / Math.sqrt(trials));
+        return mean - ((CONFIDENCE_95 * stddev) / Math.sqrt(trials));
     }
 
     // high endpoint of 95% confidence interval
     public double confidenceHigh() {
-        return mean() + ((CONFIDENCE_95 * stddev()) / Math.sqrt(trials));
+        return mean + ((CONFIDENCE_95 * stddev) / Math.sqrt(trials));
     }
 
-    // test client (see below)
+    // test client: java PercolationStats n trials [seed [parallelism]]
+    //          or: java PercolationStats n until tolerance [maxSeconds [seed]]
+    // With a seed the trials run in parallel, on every core unless limited.
+    // With "until" they run until the confidence interval is that narrow.
     public static void main(String[] args) {
         int n = Integer.parseInt(args[0]);
-        int trials = Integer.parseInt(args[1]);
 
         Stopwatch stopwatch = new Stopwatch();
-        PercolationStats stats = new PercolationStats(n, trials);
+        PercolationStats stats;
+        if (args[1].equals("until")) {
+            double tolerance = Double.parseDouble(args[2]);
+            double maxSeconds = args.length > 3 ? Double.parseDouble(args[3]) : Double.POSITIVE_INFINITY;
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : StdRandom.uniform(Long.MAX_VALUE);
+            // Progress goes to standard error, keeping standard output for the results
+            stats = new PercolationStats(n, tolerance, maxSeconds, seed, new Progress() {
+                @Override
+                public void report(int trials, double mean, double halfWidth, double seconds) {
+                    System.err.printf("%d trials, mean %.6f +/- %.6f, %.1f s\n", trials, mean, halfWidth, seconds);
+                }
+            });
+        } else if (args.length > 2) {
+            int trials = Integer.parseInt(args[1]);
+            long seed = Long.parseLong(args[2]);
+            int parallelism = args.length > 3 ? Integer.parseInt(args[3])
+                                              : Runtime.getRuntime().availableProcessors();
+            stats = new PercolationStats(n, trials, seed, parallelism);
+        } else {
+            stats = new PercolationStats(n, Integer.parseInt(args[1]));
+        }
         double elapsedTime = stopwatch.elapsedTime();
 
         System.out.printf("mean()           = %f\n", stats.mean());
         System.out.printf("stddev()         = %f\n", stats.stddev());
         System.out.printf("confidenceLow()  = %f\n", stats.confidenceLow());
         System.out.printf("confidenceHigh() = %f\n", stats.confidenceHigh());
+        System.out.printf("trials()         = %d\n", stats.trials());
         System.out.printf("elapsed time     = %.3f\n", elapsedTime);
     }
 }
@@ -0,0 +1,234 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// A deque stored in fixed-size chunks linked into a ring, for queues too large
+// to resize by copying. Growing or shrinking at either end takes or returns
+// one chunk, so every operation is constant time and no array is larger than
+// a chunk. Deque, by contrast, copies everything into an array twice the size.
+//
+// The chunks in use run from the front chunk to the back chunk; the rest of
+// the ring is a pool of empty chunks waiting to be reused. The pool keeps at
+// most maxSpareChunks, so a queue that keeps growing and shrinking across a
+// chunk boundary does not allocate, and one that has drained does not keep
+// its peak memory.
+public class SegmentedDeque<Item> implements Iterable<Item> {
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+    private static final int DEFAULT_MAX_SPARE_CHUNKS = 4;
+
+    private static final class Chunk {
+        private final Object[] items;
+        private Chunk prev;
+        private Chunk next;
+
+        Chunk(int chunkSize) {
+            items = new Object[chunkSize];
+            prev = this;
+            next = this;
+        }
+    }
+
+    private final int chunkSize;
+    private final int maxSpareChunks;
+    private Chunk frontChunk;
+    private int frontIndex; // index of the first item in frontChunk, unless empty
+    private Chunk backChunk;
+    private int backIndex;  // one past the last item in backChunk, unless empty
+    private int size;
+    private int spareChunks;
+
+    // construct an empty deque
+    public SegmentedDeque() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_SPARE_CHUNKS);
+    }
+
+    // construct an empty deque that stores items in chunks of chunkSize and
+    // keeps up to maxSpareChunks empty chunks for reuse
+    public SegmentedDeque(int chunkSize, int maxSpareChunks) {
+        if (chunkSize < 2) throw new IllegalArgumentException("Chunk size must be at least 2");
+        if (maxSpareChunks < 0) throw new IllegalArgumentException("Spare chunk count cannot be negative");
+        this.chunkSize = chunkSize;
+        this.maxSpareChunks = maxSpareChunks;
+        frontChunk = new Chunk(chunkSize);
+        backChunk = frontChunk;
+        frontIndex = chunkSize / 2; // Room to grow at both ends before a second chunk
+        backIndex = frontIndex;
+        size = 0;
+        spareChunks = 0;
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // return the number of items on the deque
+    public int size() {
+        return size;
+    }
+
+    // add the item to the front
+    public void addFirst(Item item) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        if (frontIndex == 0) {
+            frontChunk = frontChunk.prev != backChunk ? takeSpare(frontChunk.prev) : insertAfter(backChunk);
+            frontIndex = chunkSize;
+        }
+        frontChunk.items[--frontIndex] = item;
+        size++;
+    }
+
+    // add the item to the back
+    public void addLast(Item item) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        if (backIndex == chunkSize) {
+            backChunk = backChunk.next != frontChunk ? takeSpare(backChunk.next) : insertAfter(backChunk);
+            backIndex = 0;
+        }
+        backChunk.items[backIndex++] = item;
+        size++;
+    }
+
+    // remove and return the item from the front
+    @SuppressWarnings("unchecked")
+    public Item removeFirst() {
+        if (isEmpty()) throw new NoSuchElementException("Deque is empty");
+        Item item = (Item) frontChunk.items[frontIndex];
+        frontChunk.items[frontIndex++] = null; // Avoid loitering
+        size--;
+        if (size == 0) {
+            recenter();
+        } else if (frontIndex == chunkSize) {
+            Chunk emptied = frontChunk;
+            frontChunk = emptied.next;
+            frontIndex = 0;
+            release(emptied);
+        }
+        return item;
+    }
+
+    // remove and return the item from the back
+    @SuppressWarnings("unchecked")
+    public Item removeLast() {
+        if (isEmpty()) throw new NoSuchElementException("Deque is empty");
+        Item item = (Item) backChunk.items[--backIndex];
+        backChunk.items[backIndex] = null; // Avoid loitering
+        size--;
+        if (size == 0) {
+            recenter();
+        } else if (backIndex == 0) {
+            Chunk emptied = backChunk;
+            backChunk = emptied.prev;
+            backIndex = chunkSize;
+            release(emptied);
+        }
+        return item;
+    }
+
+    // return an iterator over items in order from front to back
+    public Iterator<Item> iterator() {
+        return new Iterator<Item>() {
+            private Chunk chunk = frontChunk;
+            private int current = frontIndex;
+            private int count = 0;
+
+            public boolean hasNext() {
+                return count < size;
+            }
+
+            @SuppressWarnings("unchecked")
+            public Item next() {
+                if (!hasNext()) throw new NoSuchElementException("No more items to return");
+                if (current == chunkSize) {
+                    chunk = chunk.next;
+                    current = 0;
+                }
+                count++;
+                return (Item) chunk.items[current++];
+            }
+        };
+    }
+
+    // return the number of chunks allocated, in use or spare
+    int chunks() {
+        int count = 1;
+        for (Chunk c = frontChunk.next; c != frontChunk; c = c.next) count++;
+        return count;
+    }
+
+    // Once empty, the front and back share one chunk; start again from its middle
+    private void recenter() {
+        backChunk = frontChunk;
+        frontIndex = chunkSize / 2;
+        backIndex = frontIndex;
+    }
+
+    private Chunk takeSpare(Chunk spare) {
+        spareChunks--;
+        return spare;
+    }
+
+    // Links a new chunk into the ring after c and returns it
+    private Chunk insertAfter(Chunk c) {
+        Chunk chunk = new Chunk(chunkSize);
+        chunk.prev = c;
+        chunk.next = c.next;
+        c.next.prev = chunk;
+        c.next = chunk;
+        return chunk;
+    }
+
+    // The emptied chunk is next to the chunks in use, so it joins the pool
+    // where it is, or is unlinked if the pool is full
+    private void release(Chunk emptied) {
+        if (spareChunks < maxSpareChunks) {
+            spareChunks++;
+        } else {
+            emptied.prev.next = emptied.next;
+            emptied.next.prev = emptied.prev;
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        SegmentedDeque<String> deque = new SegmentedDeque<>();
+        deque.addFirst("A");
+        deque.addLast("B");
+        System.out.println(deque.removeFirst()); // A
+        System.out.println(deque.removeLast());  // B
+        deque.addFirst("C");
+        deque.addLast("D");
+        for (String s : deque) {
+            System.out.println(s); // C D
+        }
+
+        // Small chunks, so the random run crosses chunk boundaries constantly
+        SegmentedDeque<Integer> chunked = new SegmentedDeque<>(4, 2);
+        java.util.ArrayDeque<Integer> reference = new java.util.ArrayDeque<>();
+        java.util.Random random = new java.util.Random(14);
+        boolean same = true;
+        for (int i = 0; i < 200_000; i++) {
+            int op = random.nextInt(i % 20_000 < 10_000 ? 5 : 3); // phases that grow, then drain
+            if (op >= 3 || reference.isEmpty()) {
+                if (random.nextBoolean()) {
+                    chunked.addFirst(i);
+                    reference.addFirst(i);
+                } else {
+                    chunked.addLast(i);
+                    reference.addLast(i);
+                }
+            } else if (op == 0) {
+                same &= chunked.removeFirst().equals(reference.removeFirst());
+            } else {
+                same &= chunked.removeLast().equals(reference.removeLast());
+            }
+            same &= chunked.size() == reference.size();
+        }
+        Iterator<Integer> expected = reference.iterator();
+        for (int item : chunked) same &= expected.hasNext() && item == expected.next();
+        System.out.println("matches java.util.ArrayDeque: " + same); // true
+
+        // Draining gives back all but the spare chunks
+        while (!chunked.isEmpty()) chunked.removeLast();
+        System.out.println("chunks after draining: " + chunked.chunks()); // 3
+    }
+}
@@ -0,0 +1,422 @@
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import java.util.Arrays;
+
+// A precomputed distance oracle for a DAG that never changes: every vertex
+// stores its whole ancestor set (itself included) with the distance to each,
+// sorted by ancestor id in flat int arrays. A shortest ancestral path
+// between v and w is then a merge of two short sorted lists, with no search.
+//
+// Labels are built top-down in topological order (Kahn's algorithm, from
+// the roots): a vertex's ancestors are its parents' ancestors one step
+// further, plus itself. A vertex whose label would exceed maxLabelSize gets
+// none, nor does anything below it, since their labels would include its
+// ancestors; search returns null for those and callers fall back to BFS.
+//
+// For two vertex subsets, each side's labels are first merged into one
+// sorted label holding the smallest distance to each ancestor, and the two
+// are then merged as for single vertices. Each thread keeps its own buffers
+// for this, so the index is safe for concurrent use.
+public class AncestorIndex {
+
+    private final int[] offsets;   // vertex v's label is [offsets[v], offsets[v + 1])
+    private final int[] ancestors; // ancestor ids, ascending within each label
+    private final int[] distances; // distance from the vertex to each ancestor
+    private final boolean[] covered;
+    private final int coveredCount;
+    private final double buildSeconds;
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    // One subset's labels merged into one: ids ascending, each with its
+    // smallest distance. The heap holds a cursor [pos, end) into each label
+    // still being read, ordered by the ancestor at pos.
+    private static final class Merged {
+        private int[] ids = new int[64];
+        private int[] dists = new int[64];
+        private int size;
+        private int[] pos = new int[8];
+        private int[] end = new int[8];
+        private int heapSize;
+        private int entries; // total length of the labels in the heap
+    }
+
+    private static final class Scratch {
+        private final Merged a = new Merged();
+        private final Merged b = new Merged();
+    }
+
+    // builds labels of at most maxLabelSize entries for the acyclic digraph
+    public AncestorIndex(CsrDigraph G, int maxLabelSize) {
+        if (G == null)
+            throw new IllegalArgumentException("Argument cannot be null.");
+        if (maxLabelSize < 1)
+            throw new IllegalArgumentException("maxLabelSize must be at least 1.");
+        long start = System.nanoTime();
+        int V = G.V();
+
+        // Children of each vertex, for walking down from the roots
+        CsrDigraph children = G.reverse();
+
+        // Labels are appended to ids/dists in topological order
+        int[] pendingParents = new int[V];
+        int[] queue = new int[V];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < V; v++) {
+            pendingParents[v] = G.outdegree(v);
+            if (pendingParents[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+        int[] labelStart = new int[V];  // where each vertex's label went
+        int[] labelLength = new int[V];
+        boolean[] labeled = new boolean[V];
+        int[] ids = new int[Math.max(16, V)];
+        int[] dists = new int[ids.length];
+        int size = 0;
+
+        // Scratch for merging parents' labels: best[a] is valid where seen[a] == v + 1
+        int[] best = new int[V];
+        int[] seen = new int[V];
+        int[] touched = new int[V];
+        int labeledCount = 0;
+
+        while (head < tail) {
+            int v = queue[head++];
+            boolean fits = true;
+            int count = 0;
+            seen[v] = v + 1;
+            best[v] = 0;
+            touched[count++] = v;
+            for (int e = G.first(v), last = G.end(v); e < last; e++) {
+                int parent = G.target(e);
+                if (!labeled[parent]) {
+                    fits = false;
+                    break;
+                }
+                for (int i = labelStart[parent], end = i + labelLength[parent]; i < end; i++) {
+                    int a = ids[i];
+                    int d = dists[i] + 1;
+                    if (seen[a] != v + 1) {
+                        seen[a] = v + 1;
+                        best[a] = d;
+                        touched[count++] = a;
+                    } else if (d < best[a]) {
+                        best[a] = d;
+                    }
+                }
+                if (count > maxLabelSize) {
+                    fits = false;
+                    break;
+                }
+            }
+            if (fits) {
+                Arrays.sort(touched, 0, count);
+                if (size + count > ids.length) {
+                    int capacity = Math.max(ids.length * 2, size + count);
+                    ids = Arrays.copyOf(ids, capacity);
+                    dists = Arrays.copyOf(dists, capacity);
+                }
+                for (int i = 0; i < count; i++) {
+                    ids[size + i] = touched[i];
+                    dists[size + i] = best[touched[i]];
+                }
+                labelStart[v] = size;
+                labelLength[v] = count;
+                size += count;
+                labeled[v] = true;
+                labeledCount++;
+            }
+            for (int e = children.first(v), last = children.end(v); e < last; e++) {
+                int child = children.target(e);
+                if (--pendingParents[child] == 0) {
+                    queue[tail++] = child;
+                }
+            }
+        }
+        if (tail != V)
+            throw new IllegalArgumentException("Graph is not acyclic.");
+
+        // Lay the labels out in vertex order, trimmed to size
+        this.offsets = new int[V + 1];
+        this.ancestors = new int[size];
+        this.distances = new int[size];
+        int position = 0;
+        for (int v = 0; v < V; v++) {
+            offsets[v] = position;
+            System.arraycopy(ids, labelStart[v], ancestors, position, labelLength[v]);
+            System.arraycopy(dists, labelStart[v], distances, position, labelLength[v]);
+            position += labelLength[v];
+        }
+        offsets[V] = position;
+        this.covered = labeled;
+        this.coveredCount = labeledCount;
+        this.buildSeconds = (System.nanoTime() - start) / 1e9;
+    }
+
+    // length and ancestor, as {length, ancestor}, of a shortest ancestral path
+    // between v and w; {-1, -1} if there is none, or null if either vertex has no label
+    public int[] search(int v, int w) {
+        if (!covered[v] || !covered[w]) {
+            return null;
+        }
+        return closest(ancestors, distances, offsets[v], offsets[v + 1],
+                       ancestors, distances, offsets[w], offsets[w + 1]);
+    }
+
+    // Merges two sorted labels, [i, iEnd) and [j, jEnd), into {length, ancestor}
+    // of the common ancestor with the smallest total distance, or {-1, -1}
+    private static int[] closest(int[] idsA, int[] distsA, int i, int iEnd,
+                                 int[] idsB, int[] distsB, int j, int jEnd) {
+        int bestLength = Integer.MAX_VALUE;
+        int bestAncestor = -1;
+        while (i < iEnd && j < jEnd) {
+            int a = idsA[i];
+            int b = idsB[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                int length = distsA[i++] + distsB[j++];
+                if (length < bestLength) {
+                    bestLength = length;
+                    bestAncestor = a;
+                }
+            }
+        }
+        return bestAncestor == -1 ? new int[] { -1, -1 } : new int[] { bestLength, bestAncestor };
+    }
+
+    // the same for the closest pair across two vertex subsets; null if any vertex has no label
+    public int[] search(Iterable<Integer> subsetA, Iterable<Integer> subsetB) {
+        Scratch s = scratch.get();
+        s.a.heapSize = 0;
+        s.a.entries = 0;
+        for (int v : subsetA) {
+            if (!push(s.a, v)) {
+                return null;
+            }
+        }
+        s.b.heapSize = 0;
+        s.b.entries = 0;
+        for (int w : subsetB) {
+            if (!push(s.b, w)) {
+                return null;
+            }
+        }
+        return closest(s);
+    }
+
+    // the same for subsetA[aFrom .. aTo - 1] and subsetB[bFrom .. bTo - 1]
+    public int[] search(int[] subsetA, int aFrom, int aTo, int[] subsetB, int bFrom, int bTo) {
+        Scratch s = scratch.get();
+        s.a.heapSize = 0;
+        s.a.entries = 0;
+        for (int i = aFrom; i < aTo; i++) {
+            if (!push(s.a, subsetA[i])) {
+                return null;
+            }
+        }
+        s.b.heapSize = 0;
+        s.b.entries = 0;
+        for (int j = bFrom; j < bTo; j++) {
+            if (!push(s.b, subsetB[j])) {
+                return null;
+            }
+        }
+        return closest(s);
+    }
+
+    // Merges each side's labels, then the two merged labels. A side with a
+    // single label, as most nouns have, is read in place.
+    private int[] closest(Scratch s) {
+        if (s.a.heapSize == 0 || s.b.heapSize == 0) {
+            return new int[] { -1, -1 };
+        }
+        int[] idsA = ancestors;
+        int[] distsA = distances;
+        int aFrom = s.a.pos[0];
+        int aTo = s.a.end[0];
+        if (s.a.heapSize > 1) {
+            drain(s.a);
+            idsA = s.a.ids;
+            distsA = s.a.dists;
+            aFrom = 0;
+            aTo = s.a.size;
+        }
+        int[] idsB = ancestors;
+        int[] distsB = distances;
+        int bFrom = s.b.pos[0];
+        int bTo = s.b.end[0];
+        if (s.b.heapSize > 1) {
+            drain(s.b);
+            idsB = s.b.ids;
+            distsB = s.b.dists;
+            bFrom = 0;
+            bTo = s.b.size;
+        }
+        return closest(idsA, distsA, aFrom, aTo, idsB, distsB, bFrom, bTo);
+    }
+
+    // Adds v's label to the heap of labels to merge; false if v has no label
+    private boolean push(Merged m, int v) {
+        if (!covered[v]) {
+            return false;
+        }
+        int from = offsets[v];
+        int to = offsets[v + 1];
+        if (m.heapSize == m.pos.length) {
+            m.pos = Arrays.copyOf(m.pos, 2 * m.heapSize);
+            m.end = Arrays.copyOf(m.end, 2 * m.heapSize);
+        }
+        int k = m.heapSize++;
+        while (k > 0) { // sift up
+            int parent = (k - 1) / 2;
+            if (ancestors[m.pos[parent]] <= ancestors[from]) {
+                break;
+            }
+            m.pos[k] = m.pos[parent];
+            m.end[k] = m.end[parent];
+            k = parent;
+        }
+        m.pos[k] = from;
+        m.end[k] = to;
+        m.entries += to - from;
+        return true;
+    }
+
+    // Pops the heap's labels in ancestor order into m.ids and m.dists,
+    // keeping one entry per ancestor with its smallest distance
+    private void drain(Merged m) {
+        if (m.ids.length < m.entries) {
+            m.ids = new int[Math.max(m.entries, 2 * m.ids.length)];
+            m.dists = new int[m.ids.length];
+        }
+        int size = 0;
+        while (m.heapSize > 0) {
+            int p = m.pos[0];
+            int a = ancestors[p];
+            int d = distances[p];
+            if (size > 0 && m.ids[size - 1] == a) {
+                if (d < m.dists[size - 1]) {
+                    m.dists[size - 1] = d;
+                }
+            } else {
+                m.ids[size] = a;
+                m.dists[size] = d;
+                size++;
+            }
+
+            // Advance the top cursor, or replace it with the last one
+            int pos = p + 1;
+            int end = m.end[0];
+            if (pos == end) {
+                m.heapSize--;
+                pos = m.pos[m.heapSize];
+                end = m.end[m.heapSize];
+                if (m.heapSize == 0) {
+                    break;
+                }
+            }
+            int k = 0;
+            while (true) { // sift down
+                int child = 2 * k + 1;
+                if (child >= m.heapSize) {
+                    break;
+                }
+                if (child + 1 < m.heapSize && ancestors[m.pos[child + 1]] < ancestors[m.pos[child]]) {
+                    child++;
+                }
+                if (ancestors[pos] <= ancestors[m.pos[child]]) {
+                    break;
+                }
+                m.pos[k] = m.pos[child];
+                m.end[k] = m.end[child];
+                k = child;
+            }
+            m.pos[k] = pos;
+            m.end[k] = end;
+        }
+        m.size = size;
+    }
+
+    // is the vertex labeled, so that search answers for it?
+    public boolean covers(int v) {
+        return covered[v];
+    }
+
+    // the number of labeled vertices
+    public int coveredCount() {
+        return coveredCount;
+    }
+
+    // the total number of label entries
+    public int entries() {
+        return ancestors.length;
+    }
+
+    // approximate memory held by the index, in bytes
+    public long bytes() {
+        return 4L * (offsets.length + ancestors.length + distances.length) + covered.length;
+    }
+
+    // seconds the constructor took
+    public double buildSeconds() {
+        return buildSeconds;
+    }
+
+    // Builds the index for a hypernyms file and compares it with
+    // AncestralSearch on random pairs.
+    // Usage: java AncestorIndex hypernyms.txt [maxLabelSize] [queries]
+    public static void main(String[] args) {
+        CsrDigraph G = CsrDigraph.readHypernyms(new In(args[0]));
+        int maxLabelSize = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        AncestorIndex index = new AncestorIndex(G, maxLabelSize);
+        StdOut.printf("built in %.3f s: %d of %d vertices labeled, %d entries, %.1f MB\n",
+                      index.buildSeconds(), index.coveredCount(), G.V(), index.entries(),
+                      index.bytes() / 1e6);
+
+        int[] vs = new int[queries];
+        int[] ws = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            vs[q] = StdRandom.uniform(G.V());
+            ws[q] = StdRandom.uniform(G.V());
+        }
+        AncestralSearch search = new AncestralSearch(G);
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (int q = 0; q < queries; q++) {
+                checksum += search.search(vs[q], ws[q])[0];
+            }
+            double searchNanos = (System.nanoTime() - start) / (double) queries;
+
+            start = System.nanoTime();
+            long indexChecksum = 0;
+            int fallbacks = 0;
+            for (int q = 0; q < queries; q++) {
+                int[] result = index.search(vs[q], ws[q]);
+                if (result == null) {
+                    fallbacks++;
+                    result = search.search(vs[q], ws[q]);
+                }
+                indexChecksum += result[0];
+            }
+            double indexNanos = (System.nanoTime() - start) / (double) queries;
+            if (round == 1) {
+                StdOut.printf("lockstep search %.2f us/query, index %.2f us/query (%d fallbacks), %s\n",
+                              searchNanos / 1e3, indexNanos / 1e3, fallbacks,
+                              checksum == indexChecksum ? "lengths agree" : "LENGTHS DIFFER");
+            }
+        }
+    }
+}
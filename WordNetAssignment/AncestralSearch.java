@@ -0,0 +1,233 @@
+import edu.princeton.cs.algs4.BreadthFirstDirectedPaths;
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+import java.util.Arrays;
+
+// Finds shortest ancestral paths by searching up from both sides in
+// lockstep, one BFS level at a time, and stopping as soon as neither side
+// can improve on the best path found. Two vertices that are siblings are
+// settled after a level or two, where two full BreadthFirstDirectedPaths
+// would each visit every ancestor and then scan all V vertices.
+//
+// Each thread keeps its own scratch arrays. Rather than clearing them for
+// every query, a vertex counts as visited only if its mark equals the
+// current query's stamp, so a query costs time in proportion to the vertices
+// it touches. Safe for concurrent use.
+//
+// The digraph is a CsrDigraph, so the search walks edges as plain ints.
+public class AncestralSearch {
+
+    private final CsrDigraph G;
+    private final ThreadLocal<Scratch> scratch;
+
+    // One direction of the search
+    private static final class Side {
+        private final int[] mark;  // mark[v] == stamp if v has been reached this query
+        private final int[] dist;  // valid only where marked
+        private final int[] queue; // each vertex enters at most once
+        private int head;
+        private int tail;
+        private int level;         // distance of the vertices waiting in the queue
+
+        Side(int V) {
+            mark = new int[V];
+            dist = new int[V];
+            queue = new int[V];
+        }
+    }
+
+    private static final class Scratch {
+        private final Side a;
+        private final Side b;
+        private final Result result = new Result();
+        private int stamp;
+
+        Scratch(int V) {
+            a = new Side(V);
+            b = new Side(V);
+        }
+    }
+
+    // The best path found so far in a query, kept in Scratch and reset by begin()
+    private static final class Result {
+        private int length = Integer.MAX_VALUE;
+        private int ancestor = -1;
+    }
+
+    // the digraph is immutable, so it is shared rather than copied
+    public AncestralSearch(final CsrDigraph G) {
+        if (G == null)
+            throw new IllegalArgumentException("Argument cannot be null.");
+        this.G = G;
+        this.scratch = new ThreadLocal<Scratch>() {
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch(G.V());
+            }
+        };
+    }
+
+    // length and ancestor, as {length, ancestor}, of a shortest ancestral
+    // path between v and w, or {-1, -1} if they have no common ancestor
+    public int[] search(int v, int w) {
+        Scratch s = begin();
+        Result result = s.result;
+        reach(s.a, s.b, s.stamp, v, result);
+        reach(s.b, s.a, s.stamp, w, result);
+        return run(s, result);
+    }
+
+    // length and ancestor, as {length, ancestor}, of a shortest ancestral
+    // path between any vertex of subsetA and any of subsetB, or {-1, -1}
+    public int[] search(Iterable<Integer> subsetA, Iterable<Integer> subsetB) {
+        Scratch s = begin();
+        Result result = s.result;
+        for (int v : subsetA) {
+            reach(s.a, s.b, s.stamp, v, result);
+        }
+        for (int w : subsetB) {
+            reach(s.b, s.a, s.stamp, w, result);
+        }
+        return run(s, result);
+    }
+
+    // the same for the vertices subsetA[aFrom .. aTo - 1] and subsetB[bFrom .. bTo - 1]
+    public int[] search(int[] subsetA, int aFrom, int aTo, int[] subsetB, int bFrom, int bTo) {
+        Scratch s = begin();
+        Result result = s.result;
+        for (int i = aFrom; i < aTo; i++) {
+            reach(s.a, s.b, s.stamp, subsetA[i], result);
+        }
+        for (int i = bFrom; i < bTo; i++) {
+            reach(s.b, s.a, s.stamp, subsetB[i], result);
+        }
+        return run(s, result);
+    }
+
+    // Starts a query with a fresh stamp and empty queues
+    private Scratch begin() {
+        Scratch s = scratch.get();
+        if (s.stamp == Integer.MAX_VALUE) {
+            // Stamps have wrapped; clear the marks once and start over
+            Arrays.fill(s.a.mark, 0);
+            Arrays.fill(s.b.mark, 0);
+            s.stamp = 0;
+        }
+        s.stamp++;
+        s.a.head = s.a.tail = s.a.level = 0;
+        s.b.head = s.b.tail = s.b.level = 0;
+        s.result.length = Integer.MAX_VALUE;
+        s.result.ancestor = -1;
+        return s;
+    }
+
+    // Marks v as reached by this side at distance side.level, unless it
+    // already was, and checks whether the other side got there first
+    private static void reach(Side side, Side other, int stamp, int v, Result result) {
+        if (side.mark[v] == stamp) {
+            return;
+        }
+        side.mark[v] = stamp;
+        side.dist[v] = side.level;
+        side.queue[side.tail++] = v;
+        if (other.mark[v] == stamp) {
+            int length = side.level + other.dist[v];
+            if (length < result.length) {
+                result.length = length;
+                result.ancestor = v;
+            }
+        }
+    }
+
+    // Expands whole levels, alternating sides. A side stops once the next
+    // vertices it would reach are at least as far as the best path found,
+    // since anything it found there could only tie or lose.
+    private int[] run(Scratch s, Result result) {
+        while (true) {
+            boolean expanded = expandLevel(s.a, s.b, s.stamp, result);
+            expanded |= expandLevel(s.b, s.a, s.stamp, result);
+            if (!expanded) {
+                break;
+            }
+        }
+        if (result.ancestor == -1) {
+            return new int[] { -1, -1 };
+        }
+        return new int[] { result.length, result.ancestor };
+    }
+
+    // Reaches every parent of the side's current level; returns false if
+    // the side is done
+    private boolean expandLevel(Side side, Side other, int stamp, Result result) {
+        if (side.head == side.tail || side.level + 1 >= result.length) {
+            return false;
+        }
+        int end = side.tail;
+        side.level++;
+        for (; side.head < end; side.head++) {
+            int v = side.queue[side.head];
+            for (int e = G.first(v), last = G.end(v); e < last; e++) {
+                reach(side, other, stamp, G.target(e), result);
+            }
+        }
+        return true;
+    }
+
+    // Compares against two full BFS runs on random vertex pairs of the
+    // digraph in a hypernyms file (one "id,parent,parent,..." line per synset).
+    // Usage: java AncestralSearch hypernyms.txt [queries]
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        String[] lines = in.readAllLines();
+        Digraph G = new Digraph(lines.length);
+        for (String line : lines) {
+            String[] fields = line.split(",");
+            int v = Integer.parseInt(fields[0]);
+            for (int i = 1; i < fields.length; i++) {
+                G.addEdge(v, Integer.parseInt(fields[i]));
+            }
+        }
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int[] vs = new int[queries];
+        int[] ws = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            vs[q] = StdRandom.uniform(G.V());
+            ws[q] = StdRandom.uniform(G.V());
+        }
+
+        AncestralSearch search = new AncestralSearch(new CsrDigraph(G));
+        int mismatches = 0;
+        double bfsTime = 0;
+        double searchTime = 0;
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            Stopwatch stopwatch = new Stopwatch();
+            int[] expected = new int[queries];
+            for (int q = 0; q < queries; q++) {
+                BreadthFirstDirectedPaths bfsV = new BreadthFirstDirectedPaths(G, vs[q]);
+                BreadthFirstDirectedPaths bfsW = new BreadthFirstDirectedPaths(G, ws[q]);
+                int min = Integer.MAX_VALUE;
+                for (int i = 0; i < G.V(); i++) {
+                    if (bfsV.hasPathTo(i) && bfsW.hasPathTo(i)) {
+                        min = Math.min(min, bfsV.distTo(i) + bfsW.distTo(i));
+                    }
+                }
+                expected[q] = min == Integer.MAX_VALUE ? -1 : min;
+            }
+            bfsTime = stopwatch.elapsedTime();
+
+            stopwatch = new Stopwatch();
+            mismatches = 0;
+            for (int q = 0; q < queries; q++) {
+                if (search.search(vs[q], ws[q])[0] != expected[q]) {
+                    mismatches++;
+                }
+            }
+            searchTime = stopwatch.elapsedTime();
+        }
+        StdOut.printf("%d random pairs: two BFS %.1f us/query, lockstep %.1f us/query, %d mismatches\n",
+                      queries, 1e6 * bfsTime / queries, 1e6 * searchTime / queries, mismatches);
+    }
+}
@@ -0,0 +1,271 @@
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+// An immutable digraph in compressed sparse row form: the edges leaving v are
+// targets[offsets[v]] through targets[offsets[v + 1] - 1]. Two int arrays in
+// all, where a Digraph keeps a Bag of boxed Integers per vertex; walking a
+// vertex's edges reads consecutive ints instead of chasing list nodes.
+//
+// Loop over the edges of v with
+//     for (int e = G.first(v), end = G.end(v); e < end; e++) ... G.target(e) ...
+public final class CsrDigraph {
+
+    private final int[] offsets; // V + 1 entries; offsets[V] == E
+    private final int[] targets;
+
+    // Takes the arrays as they are, for callers that built them; offsets has
+    // V + 1 entries, ascending from 0 to targets.length
+    CsrDigraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    // copies the digraph, keeping each vertex's edges in adj() order
+    public CsrDigraph(Digraph G) {
+        if (G == null)
+            throw new IllegalArgumentException("Argument cannot be null.");
+        int V = G.V();
+        this.offsets = new int[V + 1];
+        this.targets = new int[G.E()];
+        int e = 0;
+        for (int v = 0; v < V; v++) {
+            offsets[v] = e;
+            for (int w : G.adj(v)) {
+                targets[e++] = w;
+            }
+        }
+        offsets[V] = e;
+    }
+
+    // reads a hypernyms file, one "id,parent,parent,..." line per synset,
+    // with an edge from each synset to each of its parents; vertices are
+    // 0 through the largest id seen
+    public static CsrDigraph readHypernyms(In in) {
+        return readHypernyms(in, -1);
+    }
+
+    // as above, for exactly V vertices; every id must be less than V
+    public static CsrDigraph readHypernyms(In in, int V) {
+        if (in == null)
+            throw new IllegalArgumentException("Argument cannot be null.");
+        String[] lines = in.readAllLines();
+
+        // An edge for every comma, collected as (from, to) pairs
+        int edges = 0;
+        for (String line : lines) {
+            int last = fieldsEnd(line);
+            for (int i = line.indexOf(','); i >= 0 && i < last; i = line.indexOf(',', i + 1)) {
+                edges++;
+            }
+        }
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        int e = 0;
+        int maxId = -1;
+        for (String line : lines) {
+            int last = fieldsEnd(line);
+            int end = line.indexOf(',');
+            if (end < 0 || end > last)
+                end = last;
+            int v = parseId(line, 0, end);
+            maxId = Math.max(maxId, v);
+            while (end < last) {
+                int start = end + 1;
+                end = line.indexOf(',', start);
+                if (end < 0 || end > last)
+                    end = last;
+                int w = parseId(line, start, end);
+                maxId = Math.max(maxId, w);
+                from[e] = v;
+                to[e] = w;
+                e++;
+            }
+        }
+        if (V < 0)
+            V = maxId + 1;
+        else if (maxId >= V)
+            throw new IllegalArgumentException("Synset id " + maxId + " out of bounds.");
+        return fromEdges(V, from, to);
+    }
+
+    // The end of the line without its trailing commas: empty fields at the end
+    // are ignored, as String.split(",") ignores them
+    private static int fieldsEnd(String line) {
+        int last = line.length();
+        while (last > 0 && line.charAt(last - 1) == ',')
+            last--;
+        return last;
+    }
+
+    // Parses the non-negative id in line[start, end), ignoring surrounding blanks
+    private static int parseId(String line, int start, int end) {
+        while (start < end && Character.isWhitespace(line.charAt(start)))
+            start++;
+        while (end > start && Character.isWhitespace(line.charAt(end - 1)))
+            end--;
+        if (start == end || end - start > 9)
+            throw new IllegalArgumentException("Malformed synset id in line: " + line);
+        int id = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9)
+                throw new IllegalArgumentException("Malformed synset id in line: " + line);
+            id = id * 10 + digit;
+        }
+        return id;
+    }
+
+    // Sorts an edge list into rows by counting, keeping the list's order within each row
+    static CsrDigraph fromEdges(int V, int[] from, int[] to) {
+        int[] offsets = new int[V + 1];
+        for (int v : from) {
+            offsets[v + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] targets = new int[from.length];
+        int[] next = new int[V];
+        System.arraycopy(offsets, 0, next, 0, V);
+        for (int e = 0; e < from.length; e++) {
+            targets[next[from[e]]++] = to[e];
+        }
+        return new CsrDigraph(offsets, targets);
+    }
+
+    // number of vertices
+    public int V() {
+        return offsets.length - 1;
+    }
+
+    // number of edges
+    public int E() {
+        return targets.length;
+    }
+
+    // number of edges leaving v
+    public int outdegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    // index of the first edge leaving v
+    public int first(int v) {
+        return offsets[v];
+    }
+
+    // one past the index of the last edge leaving v
+    public int end(int v) {
+        return offsets[v + 1];
+    }
+
+    // the vertex edge e points to
+    public int target(int e) {
+        return targets[e];
+    }
+
+    // the digraph with every edge reversed
+    public CsrDigraph reverse() {
+        int V = V();
+        int[] sources = new int[targets.length];
+        for (int v = 0; v < V; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                sources[e] = v;
+            }
+        }
+        return fromEdges(V, targets, sources);
+    }
+
+    // does the digraph have no directed cycle? Peels off vertices with no
+    // incoming edges (Kahn's algorithm) with an explicit queue, so deep
+    // graphs cannot overflow the stack as recursive depth-first search can
+    public boolean isAcyclic() {
+        int V = V();
+        int[] indegree = new int[V];
+        for (int w : targets) {
+            indegree[w]++;
+        }
+        int[] queue = new int[V];
+        int tail = 0;
+        for (int v = 0; v < V; v++) {
+            if (indegree[v] == 0)
+                queue[tail++] = v;
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                if (--indegree[targets[e]] == 0)
+                    queue[tail++] = targets[e];
+            }
+        }
+        return tail == V;
+    }
+
+    // number of vertices with no outgoing edges
+    public int rootCount() {
+        int roots = 0;
+        for (int v = 0; v < V(); v++) {
+            if (offsets[v + 1] == offsets[v])
+                roots++;
+        }
+        return roots;
+    }
+
+    // approximate memory held by the two arrays, in bytes
+    public long bytes() {
+        return 4L * (offsets.length + targets.length);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Reads a hypernyms file both ways and compares memory and a full
+    // traversal of every edge.
+    // Usage: java CsrDigraph hypernyms.txt
+    public static void main(String[] args) {
+        CsrDigraph csr = readHypernyms(new In(args[0]));
+        StdOut.printf("V = %d, E = %d, acyclic = %b, roots = %d\n",
+                      csr.V(), csr.E(), csr.isAcyclic(), csr.rootCount()); // acyclic = true, roots = 1
+
+        long before = usedMemory();
+        Digraph G = new Digraph(csr.V());
+        for (int v = 0; v < csr.V(); v++) {
+            for (int e = csr.first(v); e < csr.end(v); e++) {
+                G.addEdge(v, csr.target(e));
+            }
+        }
+        long digraphBytes = usedMemory() - before;
+        before = usedMemory();
+        CsrDigraph copy = new CsrDigraph(G);
+        long csrBytes = usedMemory() - before;
+        StdOut.printf("Digraph %.2f MB, CsrDigraph %.2f MB\n", digraphBytes / 1e6, csrBytes / 1e6);
+
+        for (int round = 0; round < 5; round++) { // the first rounds warm up
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int v = 0; v < G.V(); v++) {
+                for (int w : G.adj(v)) {
+                    sum += w;
+                }
+            }
+            double digraphMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            long csrSum = 0;
+            for (int v = 0; v < copy.V(); v++) {
+                for (int e = copy.first(v), end = copy.end(v); e < end; e++) {
+                    csrSum += copy.target(e);
+                }
+            }
+            double csrMillis = (System.nanoTime() - start) / 1e6;
+            if (round == 4) {
+                StdOut.printf("scan of every edge: Digraph %.3f ms, CsrDigraph %.3f ms, %s\n",
+                              digraphMillis, csrMillis, sum == csrSum ? "same edges" : "EDGES DIFFER");
+            }
+        }
+    }
+}
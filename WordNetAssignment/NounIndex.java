@@ -0,0 +1,292 @@
+import edu.princeton.cs.algs4.StdOut;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+// The WordNet nouns, sorted, each with the ids of the synsets that contain
+// it. Noun i is names[nameOffsets[i] .. nameOffsets[i + 1]) in UTF-8, and its
+// synsets are synsetIds[idOffsets[i] .. idOffsets[i + 1]), ascending, all in
+// one flat int[]. A HashMap<String, Set<Integer>> instead needs a String, a
+// HashSet and boxed Integers for every noun.
+//
+// find() hashes the word as String.hashCode() does and probes an
+// open-addressing table of noun positions, built from the stored bytes, then
+// compares the word with the bytes in place. A noun's synsets can then go to
+// ShortestCommonAncestor as a range of synsetIds(), with nothing boxed and
+// nothing copied.
+//
+// The names and name offsets may be memory-mapped from a WordNetData
+// snapshot; the index is never modified, so it is safe for concurrent readers.
+public class NounIndex {
+
+    private final ByteBuffer names;      // every noun, concatenated in unsigned byte order
+    private final IntBuffer nameOffsets; // size() + 1 entries
+    private final IntBuffer idOffsets;   // size() + 1 entries
+    private final int[] synsetIds;
+    private final int[] table;           // noun position + 1 by hash, 0 if free; at most half full
+
+    // takes the columns as they are, for WordNetData, which builds them
+    NounIndex(ByteBuffer names, IntBuffer nameOffsets, IntBuffer idOffsets, int[] synsetIds) {
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.idOffsets = idOffsets;
+        this.synsetIds = synsetIds;
+
+        int n = nameOffsets.limit() - 1;
+        this.table = new int[Math.max(2, Integer.highestOneBit(Math.max(1, n)) << 2)];
+        int mask = table.length - 1;
+        for (int i = 0; i < n; i++) {
+            int slot = spread(hashAt(i)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    // The String.hashCode() of noun i, from its bytes when they are ASCII
+    private int hashAt(int i) {
+        int start = nameOffsets.get(i);
+        int end = nameOffsets.get(i + 1);
+        int h = 0;
+        for (int p = start; p < end; p++) {
+            int b = names.get(p);
+            if (b < 0) {
+                return noun(i).hashCode();
+            }
+            h = 31 * h + b;
+        }
+        return h;
+    }
+
+    // Mixes the high bits of a String hash into the low bits the table uses
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // number of distinct nouns
+    public int size() {
+        return nameOffsets.limit() - 1;
+    }
+
+    // the i-th noun in sorted order
+    public String noun(int i) {
+        int start = nameOffsets.get(i);
+        byte[] utf8 = new byte[nameOffsets.get(i + 1) - start];
+        ByteBuffer view = names.duplicate();
+        view.position(start);
+        view.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // all nouns in sorted order, each created as it is reached
+    public Iterable<String> nouns() {
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size();
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return noun(next++);
+                    }
+                };
+            }
+        };
+    }
+
+    // the position of the word in sorted order, or -1 if it is not a noun
+    public int find(String word) {
+        if (word == null)
+            throw new IllegalArgumentException("Argument cannot be null.");
+        byte[] utf8 = null;
+        for (int j = 0; j < word.length(); j++) {
+            if (word.charAt(j) >= 0x80) {
+                utf8 = word.getBytes(StandardCharsets.UTF_8);
+                break;
+            }
+        }
+        int mask = table.length - 1;
+        for (int slot = spread(word.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int i = table[slot] - 1;
+            if (utf8 == null ? equalsAscii(word, i) : equalsBytes(utf8, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Is noun i the ASCII word? Each char is then its own UTF-8 byte.
+    private boolean equalsAscii(String word, int i) {
+        int start = nameOffsets.get(i);
+        if (nameOffsets.get(i + 1) - start != word.length()) {
+            return false;
+        }
+        for (int j = 0; j < word.length(); j++) {
+            if (names.get(start + j) != word.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equalsBytes(byte[] word, int i) {
+        int start = nameOffsets.get(i);
+        if (nameOffsets.get(i + 1) - start != word.length) {
+            return false;
+        }
+        for (int j = 0; j < word.length; j++) {
+            if (names.get(start + j) != word[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // noun i's synsets are synsetIds()[first(i) .. end(i) - 1]
+    public int first(int i) {
+        return idOffsets.get(i);
+    }
+
+    public int end(int i) {
+        return idOffsets.get(i + 1);
+    }
+
+    // The flat array behind every noun's range; callers must not modify it
+    int[] synsetIds() {
+        return synsetIds;
+    }
+
+    // The columns, for WordNetData to write a snapshot
+    ByteBuffer names() {
+        return names;
+    }
+
+    IntBuffer nameOffsets() {
+        return nameOffsets;
+    }
+
+    IntBuffer idOffsets() {
+        return idOffsets;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // unit testing, then heap and per-query cost against a HashMap of
+    // boxed sets, when given files
+    // Usage: java NounIndex [synsets.txt hypernyms.txt]
+    public static void main(String[] args) throws IOException {
+        File synsets = File.createTempFile("synsets", ".txt");
+        File hypernyms = File.createTempFile("hypernyms", ".txt");
+        synsets.deleteOnExit();
+        hypernyms.deleteOnExit();
+        Files.write(synsets.toPath(), ("0,entity,x\n1,bird fowl,x\n2,worm,x\n3,bird_of_prey bird,x\n"
+                                       + "4,caf\u00e9,x\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(hypernyms.toPath(), "0\n1,0\n2,0\n3,1\n4,0\n".getBytes(StandardCharsets.UTF_8));
+        NounIndex index = WordNetData.parse(synsets.toPath(), hypernyms.toPath()).nouns();
+        StdOut.println("size() = " + index.size());                               // Expected: 6
+        int bird = index.find("bird");
+        StdOut.println("find(\"bird\") = " + bird);                                // Expected: 0
+        StdOut.println("synsets: " + index.synsetIds()[index.first(bird)] + " "
+                       + index.synsetIds()[index.end(bird) - 1]);                  // Expected: 1 3
+        StdOut.println("find(\"birds\") = " + index.find("birds"));               // Expected: -1
+        StdOut.println("find(\"caf\u00e9\") = " + index.find("caf\u00e9")); // Expected: 2
+        StringBuilder all = new StringBuilder();
+        for (String noun : index.nouns()) {
+            all.append(noun).append(' ');
+        }
+        StdOut.println(all); // Expected: bird bird_of_prey caf\u00e9 entity fowl worm
+
+        if (args.length < 2) {
+            return;
+        }
+        Path synsetsPath = Paths.get(args[0]);
+        Path hypernymsPath = Paths.get(args[1]);
+
+        // Heap held by each dictionary
+        WordNetData data = WordNetData.parse(synsetsPath, hypernymsPath);
+        index = data.nouns();
+        long before = usedMemory();
+        Map<String, Set<Integer>> map = new HashMap<>();
+        for (int i = 0; i < index.size(); i++) {
+            Set<Integer> ids = new HashSet<>();
+            for (int k = index.first(i); k < index.end(i); k++) {
+                ids.add(index.synsetIds()[k]);
+            }
+            map.put(index.noun(i), ids);
+        }
+        long mapBytes = usedMemory() - before;
+        long indexBytes = index.names().limit()
+                          + 4L * (2 * (index.size() + 1) + index.synsetIds().length + index.table.length);
+        StdOut.printf("%d nouns: HashMap of sets %.1f MB, NounIndex %.1f MB\n",
+                      index.size(), mapBytes / 1e6, indexBytes / 1e6);
+
+        // Time and allocation of distance queries through each
+        String[] words = new String[2 * 100_000];
+        Random random = new Random(1);
+        for (int q = 0; q < words.length; q++) {
+            words[q] = index.noun(random.nextInt(index.size()));
+        }
+        ShortestCommonAncestor sca = new ShortestCommonAncestor(data.digraph());
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+        for (int round = 0; round < 3; round++) { // the first rounds warm up
+            long bytes = allocation.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int q = 0; q < words.length; q += 2) {
+                sum += sca.lengthSubset(map.get(words[q]), map.get(words[q + 1]));
+            }
+            double mapNanos = (System.nanoTime() - start) / (words.length / 2.0);
+            double mapAllocated = (allocation.getThreadAllocatedBytes(threadId) - bytes) / (words.length / 2.0);
+
+            bytes = allocation.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            long indexSum = 0;
+            int[] ids = index.synsetIds();
+            for (int q = 0; q < words.length; q += 2) {
+                int a = index.find(words[q]);
+                int b = index.find(words[q + 1]);
+                indexSum += sca.lengthSubset(ids, index.first(a), index.end(a), ids, index.first(b), index.end(b));
+            }
+            double indexNanos = (System.nanoTime() - start) / (words.length / 2.0);
+            double indexAllocated = (allocation.getThreadAllocatedBytes(threadId) - bytes) / (words.length / 2.0);
+            if (round == 2) {
+                StdOut.printf("per distance query: HashMap %.2f us, %.0f bytes allocated; "
+                              + "NounIndex %.2f us, %.0f bytes allocated; %s\n",
+                              mapNanos / 1e3, mapAllocated, indexNanos / 1e3, indexAllocated,
+                              sum == indexSum ? "same distances" : "DISTANCES DIFFER");
+            }
+        }
+    }
+}
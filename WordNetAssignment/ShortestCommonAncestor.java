@@ -2,34 +2,69 @@ import edu.princeton.cs.algs4.Digraph;
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
-import edu.princeton.cs.algs4.DirectedCycle;
-import edu.princeton.cs.algs4.BreadthFirstDirectedPaths;
-import java.util.ArrayList;
 
 public class ShortestCommonAncestor {
 
-    private final Digraph G;
+    private final CsrDigraph G;
+    private final AncestralSearch search;
+    private final AncestorIndex index; // null unless precomputed
 
     // constructor takes a rooted DAG as argument
     public ShortestCommonAncestor(Digraph G) {
+        this(G, 0);
+    }
+
+    // as above, but if maxLabelSize is positive, also precomputes every
+    // vertex's ancestors with up to that many entries each, so that queries
+    // become list merges; vertices with more ancestors fall back to search
+    public ShortestCommonAncestor(Digraph G, int maxLabelSize) {
+        this(new CsrDigraph(G), maxLabelSize);
+    }
+
+    // constructor taking a rooted DAG already in compressed form, which is
+    // immutable and so is used as is rather than copied
+    public ShortestCommonAncestor(CsrDigraph G) {
+        this(G, 0);
+    }
+
+    // as above, with labels of up to maxLabelSize entries if it is positive
+    public ShortestCommonAncestor(CsrDigraph G, int maxLabelSize) {
+        this(G, maxLabelSize, true);
+    }
+
+    // for a digraph already known to be a rooted DAG, such as one from a
+    // WordNetData snapshot, skipping the checks
+    static ShortestCommonAncestor trusted(CsrDigraph G) {
+        return trusted(G, 0);
+    }
+
+    // as above, with labels of up to maxLabelSize entries if it is positive
+    static ShortestCommonAncestor trusted(CsrDigraph G, int maxLabelSize) {
+        return new ShortestCommonAncestor(G, maxLabelSize, false);
+    }
+
+    private ShortestCommonAncestor(CsrDigraph G, int maxLabelSize, boolean validate) {
         if (G == null)
             throw new IllegalArgumentException("Argument cannot be null.");
 
-        // Check for cycles
-        DirectedCycle cycleFinder = new DirectedCycle(G);
-        if (cycleFinder.hasCycle())
-            throw new IllegalArgumentException("Graph is not acyclic.");
+        if (validate) {
+            // Check for cycles
+            if (!G.isAcyclic())
+                throw new IllegalArgumentException("Graph is not acyclic.");
 
-        // Check for single root
-        int roots = 0;
-        for (int v = 0; v < G.V(); v++) {
-            if (G.outdegree(v) == 0)
-                roots++;
+            // Check for single root
+            if (G.rootCount() != 1)
+                throw new IllegalArgumentException("Graph is not rooted.");
         }
-        if (roots != 1)
-            throw new IllegalArgumentException("Graph is not rooted.");
 
-        this.G = new Digraph(G);
+        this.G = G;
+        this.search = new AncestralSearch(this.G);
+        this.index = maxLabelSize > 0 ? new AncestorIndex(this.G, maxLabelSize) : null;
+    }
+
+    // the precomputed index, with its build time and size, or null if there is none
+    public AncestorIndex index() {
+        return index;
     }
 
     // length of shortest ancestral path between v and w
@@ -60,23 +95,22 @@ public class ShortestCommonAncestor {
         return result.ancestor;
     }
 
+    // length of shortest ancestral path between the vertices subsetA[aFrom .. aTo - 1]
+    // and subsetB[bFrom .. bTo - 1], such as two nouns' ranges in a NounIndex
+    public int lengthSubset(int[] subsetA, int aFrom, int aTo, int[] subsetB, int bFrom, int bTo) {
+        return ancestorSubsetHelper(subsetA, aFrom, aTo, subsetB, bFrom, bTo)[0];
+    }
+
+    // a shortest common ancestor of the vertices subsetA[aFrom .. aTo - 1] and subsetB[bFrom .. bTo - 1]
+    public int ancestorSubset(int[] subsetA, int aFrom, int aTo, int[] subsetB, int bFrom, int bTo) {
+        return ancestorSubsetHelper(subsetA, aFrom, aTo, subsetB, bFrom, bTo)[1];
+    }
+
     private AncestorResult ancestorHelper(int v, int w) {
-        BreadthFirstDirectedPaths bfsV = new BreadthFirstDirectedPaths(G, v);
-        BreadthFirstDirectedPaths bfsW = new BreadthFirstDirectedPaths(G, w);
-
-        int minDistance = Integer.MAX_VALUE;
-        int sca = -1;
-
-        for (int i = 0; i < G.V(); i++) {
-            if (bfsV.hasPathTo(i) && bfsW.hasPathTo(i)) {
-                int dist = bfsV.distTo(i) + bfsW.distTo(i);
-                if (dist < minDistance) {
-                    minDistance = dist;
-                    sca = i;
-                }
-            }
-        }
-        return new AncestorResult(minDistance, sca);
+        int[] result = index != null ? index.search(v, w) : null;
+        if (result == null)
+            result = search.search(v, w);
+        return new AncestorResult(result[0], result[1]);
     }
 
     private AncestorResult ancestorSubsetHelper(Iterable<Integer> subsetA, Iterable<Integer> subsetB) {
@@ -86,22 +120,22 @@ public class ShortestCommonAncestor {
         validateSubset(subsetA);
         validateSubset(subsetB);
 
-        BreadthFirstDirectedPaths bfsA = new BreadthFirstDirectedPaths(G, subsetA);
-        BreadthFirstDirectedPaths bfsB = new BreadthFirstDirectedPaths(G, subsetB);
+        int[] result = index != null ? index.search(subsetA, subsetB) : null;
+        if (result == null)
+            result = search.search(subsetA, subsetB);
+        return new AncestorResult(result[0], result[1]);
+    }
 
-        int minDistance = Integer.MAX_VALUE;
-        int sca = -1;
+    // Returns {length, ancestor}, without an AncestorResult or any boxing
+    private int[] ancestorSubsetHelper(int[] subsetA, int aFrom, int aTo,
+                                       int[] subsetB, int bFrom, int bTo) {
+        validateSubset(subsetA, aFrom, aTo);
+        validateSubset(subsetB, bFrom, bTo);
 
-        for (int i = 0; i < G.V(); i++) {
-            if (bfsA.hasPathTo(i) && bfsB.hasPathTo(i)) {
-                int dist = bfsA.distTo(i) + bfsB.distTo(i);
-                if (dist < minDistance) {
-                    minDistance = dist;
-                    sca = i;
-                }
-            }
-        }
-        return new AncestorResult(minDistance, sca);
+        int[] result = index != null ? index.search(subsetA, aFrom, aTo, subsetB, bFrom, bTo) : null;
+        if (result == null)
+            result = search.search(subsetA, aFrom, aTo, subsetB, bFrom, bTo);
+        return result;
     }
 
     private void validateVertex(int v) {
@@ -121,6 +155,18 @@ public class ShortestCommonAncestor {
             throw new IllegalArgumentException("Subset is empty.");
     }
 
+    private void validateSubset(int[] subset, int from, int to) {
+        if (subset == null)
+            throw new IllegalArgumentException("Arguments cannot be null.");
+        if (from < 0 || to > subset.length || from > to)
+            throw new IllegalArgumentException("Subset range out of bounds.");
+        if (from == to)
+            throw new IllegalArgumentException("Subset is empty.");
+        for (int i = from; i < to; i++) {
+            validateVertex(subset[i]);
+        }
+    }
+
     private static class AncestorResult {
         int length;
         int ancestor;
@@ -131,11 +177,17 @@ public class ShortestCommonAncestor {
         }
     }
 
-    // unit testing (required)
+    // unit testing (required); a second argument precomputes labels of up to that size
     public static void main(String[] args) {
         In in = new In(args[0]);
         Digraph G = new Digraph(in);
-        ShortestCommonAncestor sca = new ShortestCommonAncestor(G);
+        int maxLabelSize = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        ShortestCommonAncestor sca = new ShortestCommonAncestor(G, maxLabelSize);
+        if (sca.index() != null) {
+            AncestorIndex index = sca.index();
+            StdOut.printf("index built in %.3f s: %d of %d vertices, %d entries, %d bytes\n",
+                          index.buildSeconds(), index.coveredCount(), G.V(), index.entries(), index.bytes());
+        }
         while (!StdIn.isEmpty()) {
             int v = StdIn.readInt();
             int w = StdIn.readInt();
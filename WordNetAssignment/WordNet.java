@@ -1,103 +1,99 @@
-import edu.princeton.cs.algs4.Digraph;
-import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.DirectedCycle;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class WordNet {
 
-    private final Map<Integer, String> synsetIdToSynset;
-    private final Map<String, Set<Integer>> nounToSynsetIds;
+    private final WordNetData data;
+    private final NounIndex nouns;
     private final ShortestCommonAncestor sca;
 
     // constructor takes the name of the two input files
     public WordNet(String synsets, String hypernyms) {
-        if (synsets == null || hypernyms == null)
-            throw new IllegalArgumentException("Arguments cannot be null.");
+        this(synsets, hypernyms, 0);
+    }
 
-        synsetIdToSynset = new HashMap<>();
-        nounToSynsetIds = new HashMap<>();
-
-        // Read synsets file
-        In inSynsets = new In(synsets);
-        while (inSynsets.hasNextLine()) {
-            String[] fields = inSynsets.readLine().split(",");
-            int id = Integer.parseInt(fields[0]);
-            String synset = fields[1];
-            synsetIdToSynset.put(id, synset);
-
-            String[] nouns = synset.split(" ");
-            for (String noun : nouns) {
-                nounToSynsetIds.computeIfAbsent(noun, k -> new HashSet<>()).add(id);
-            }
-        }
+    // as above, but if maxLabelSize is positive, distance and sca answer from
+    // precomputed ancestor labels of up to that many entries (see AncestorIndex)
+    public WordNet(String synsets, String hypernyms, int maxLabelSize) {
+        this(parse(synsets, hypernyms), true, maxLabelSize);
+    }
+
+    // The digraph is checked to be a rooted DAG once, by ShortestCommonAncestor,
+    // unless it comes from a snapshot
+    private WordNet(WordNetData data, boolean validate, int maxLabelSize) {
+        this.data = data;
+        this.nouns = data.nouns();
+        this.sca = validate ? new ShortestCommonAncestor(data.digraph(), maxLabelSize)
+                            : ShortestCommonAncestor.trusted(data.digraph(), maxLabelSize);
+    }
 
-        // Build the digraph
-        Digraph G = new Digraph(synsetIdToSynset.size());
-        In inHypernyms = new In(hypernyms);
-        while (inHypernyms.hasNextLine()) {
-            String[] fields = inHypernyms.readLine().split(",");
-            int v = Integer.parseInt(fields[0]);
-            for (int i = 1; i < fields.length; i++) {
-                int w = Integer.parseInt(fields[i]);
-                G.addEdge(v, w);
-            }
+    private static WordNetData parse(String synsets, String hypernyms) {
+        if (synsets == null || hypernyms == null)
+            throw new IllegalArgumentException("Arguments cannot be null.");
+        try {
+            return WordNetData.parse(Paths.get(synsets), Paths.get(hypernyms));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read " + synsets + " or " + hypernyms, e);
         }
+    }
 
-        // Check for cycles
-        DirectedCycle cycleFinder = new DirectedCycle(G);
-        if (cycleFinder.hasCycle())
-            throw new IllegalArgumentException("Graph is not acyclic.");
+    // a WordNet from a snapshot written by writeSnapshot, memory-mapped and
+    // trusted as it stands, so nothing in it is checked again
+    public static WordNet openSnapshot(String snapshot) throws IOException {
+        return openSnapshot(snapshot, 0);
+    }
 
-        // Check for single root
-        int roots = 0;
-        for (int v = 0; v < G.V(); v++) {
-            if (G.outdegree(v) == 0)
-                roots++;
-        }
-        if (roots != 1)
-            throw new IllegalArgumentException("Graph is not rooted.");
+    // as above, with ancestor labels of up to maxLabelSize entries if it is positive
+    public static WordNet openSnapshot(String snapshot, int maxLabelSize) throws IOException {
+        if (snapshot == null)
+            throw new IllegalArgumentException("Argument cannot be null.");
+        return new WordNet(WordNetData.open(Paths.get(snapshot)), false, maxLabelSize);
+    }
 
-        sca = new ShortestCommonAncestor(G);
+    // saves the synsets, nouns and digraph as a snapshot for openSnapshot
+    public void writeSnapshot(String snapshot) throws IOException {
+        if (snapshot == null)
+            throw new IllegalArgumentException("Argument cannot be null.");
+        data.write(Paths.get(snapshot));
     }
 
     // the set of all WordNet nouns
     public Iterable<String> nouns() {
-        return nounToSynsetIds.keySet();
+        return nouns.nouns();
     }
 
     // is the word a WordNet noun?
     public boolean isNoun(String word) {
         if (word == null)
             throw new IllegalArgumentException("Argument cannot be null.");
-        return nounToSynsetIds.containsKey(word);
+        return nouns.find(word) >= 0;
     }
 
     // distance between noun1 and noun2 (defined below)
     public int distance(String noun1, String noun2) {
         if (noun1 == null || noun2 == null)
             throw new IllegalArgumentException("Arguments cannot be null.");
-        if (!isNoun(noun1) || !isNoun(noun2))
+        int a = nouns.find(noun1);
+        int b = nouns.find(noun2);
+        if (a < 0 || b < 0)
             throw new IllegalArgumentException("Noun not found in WordNet.");
 
-        Set<Integer> idsA = nounToSynsetIds.get(noun1);
-        Set<Integer> idsB = nounToSynsetIds.get(noun2);
-        return sca.lengthSubset(idsA, idsB);
+        int[] ids = nouns.synsetIds();
+        return sca.lengthSubset(ids, nouns.first(a), nouns.end(a), ids, nouns.first(b), nouns.end(b));
     }
 
     // a synset (second field of synsets.txt) that is a shortest common ancestor
     public String sca(String noun1, String noun2) {
         if (noun1 == null || noun2 == null)
             throw new IllegalArgumentException("Arguments cannot be null.");
-        if (!isNoun(noun1) || !isNoun(noun2))
+        int a = nouns.find(noun1);
+        int b = nouns.find(noun2);
+        if (a < 0 || b < 0)
             throw new IllegalArgumentException("Noun not found in WordNet.");
 
-        Set<Integer> idsA = nounToSynsetIds.get(noun1);
-        Set<Integer> idsB = nounToSynsetIds.get(noun2);
-        int ancestorId = sca.ancestorSubset(idsA, idsB);
-        return synsetIdToSynset.get(ancestorId);
+        int[] ids = nouns.synsetIds();
+        int ancestorId = sca.ancestorSubset(ids, nouns.first(a), nouns.end(a), ids, nouns.first(b), nouns.end(b));
+        return data.synset(ancestorId);
     }
 
     // unit testing (required)
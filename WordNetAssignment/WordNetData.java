@@ -0,0 +1,717 @@
+import edu.princeton.cs.algs4.StdOut;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// The contents of a synsets file and a hypernyms file, in flat arrays:
+//   - the synset table: each synset's noun field in UTF-8, by id,
+//   - the noun dictionary, a NounIndex: each distinct noun once, in unsigned
+//     UTF-8 byte order, with the ascending ids of the synsets that contain it, and
+//   - the hypernym digraph, as a CsrDigraph.
+//
+// parse() memory-maps the two text files and cuts each into chunks at line
+// boundaries. The chunks are parsed in parallel on the common ForkJoinPool,
+// reading bytes in place, with no String per line or per field.
+//
+// write(Path) saves the contents as a snapshot, which open(Path) later
+// memory-maps. The synset table and the nouns are then read straight from the
+// mapped pages; only the nouns' synset ids and the digraph's two arrays are
+// copied out, into the int[]s that searches run on.
+// A snapshot is trusted as it stands: open() checks its header and size, but
+// not its contents.
+public class WordNetData {
+
+    // Snapshot layout, little-endian:
+    //   header:        int MAGIC, int VERSION, int V, int E, int nounCount,
+    //                  int nounIdCount, int synsetByteCount, int nounByteCount
+    //   synsetOffsets: V + 1 ints
+    //   nounOffsets:   nounCount + 1 ints
+    //   nounIdOffsets: nounCount + 1 ints
+    //   nounIds:       nounIdCount ints
+    //   digraph:       V + 1 ints of offsets, then E ints of targets
+    //   synset bytes:  synsetByteCount bytes of UTF-8
+    //   noun bytes:    nounByteCount bytes of UTF-8
+    private static final int MAGIC = 0x574E4454; // "WNDT"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    // Text files are cut into no more chunks than leave each this many bytes
+    private static final int MIN_CHUNK_BYTES = 1 << 16;
+
+    private final ByteBuffer synsetBytes;  // synset v is synsetBytes[synsetOffsets[v] .. synsetOffsets[v + 1])
+    private final IntBuffer synsetOffsets;
+    private final NounIndex nouns;
+    private final CsrDigraph digraph;
+
+    private WordNetData(ByteBuffer synsetBytes, IntBuffer synsetOffsets, NounIndex nouns, CsrDigraph digraph) {
+        this.synsetBytes = synsetBytes;
+        this.synsetOffsets = synsetOffsets;
+        this.nouns = nouns;
+        this.digraph = digraph;
+    }
+
+    // Parses a synsets file ("id,nouns,gloss" lines, ids 0 through V - 1) and a
+    // hypernyms file ("id,parent,parent,..." lines). Throws
+    // IllegalArgumentException if a line is malformed, a synset id is missing or
+    // repeated, or a hypernym names an unknown synset. Does not check that the
+    // digraph is a rooted DAG; ShortestCommonAncestor does that.
+    public static WordNetData parse(Path synsets, Path hypernyms) throws IOException {
+        if (synsets == null || hypernyms == null)
+            throw new IllegalArgumentException("Arguments cannot be null.");
+
+        // Both files are parsed in one parallel pass over all their chunks
+        ByteBuffer synsetText = mapText(synsets);
+        ByteBuffer hypernymText = mapText(hypernyms);
+        int[] synsetBounds = chunkBounds(synsetText);
+        int[] hypernymBounds = chunkBounds(hypernymText);
+        SynsetChunk[] synsetChunks = new SynsetChunk[synsetBounds.length - 1];
+        HypernymChunk[] hypernymChunks = new HypernymChunk[hypernymBounds.length - 1];
+        Chunk[] chunks = new Chunk[synsetChunks.length + hypernymChunks.length];
+        for (int c = 0; c < synsetChunks.length; c++) {
+            synsetChunks[c] = new SynsetChunk(synsetText, synsetBounds[c], synsetBounds[c + 1]);
+            chunks[c] = synsetChunks[c];
+        }
+        for (int c = 0; c < hypernymChunks.length; c++) {
+            hypernymChunks[c] = new HypernymChunk(hypernymText, hypernymBounds[c], hypernymBounds[c + 1]);
+            chunks[synsetChunks.length + c] = hypernymChunks[c];
+        }
+        try {
+            ForkJoinPool.commonPool().invoke(new ParseTask(chunks, 0, chunks.length));
+        } catch (IllegalArgumentException e) {
+            // One thrown on a pool thread arrives wrapped in a copy of itself
+            if (e.getCause() instanceof IllegalArgumentException)
+                throw (IllegalArgumentException) e.getCause();
+            throw e;
+        }
+
+        // Synset table, in id order
+        int V = 0;
+        for (SynsetChunk chunk : synsetChunks) {
+            V += chunk.count;
+        }
+        int[] fieldStarts = new int[V];
+        int[] fieldEnds = new int[V];
+        Arrays.fill(fieldStarts, -1);
+        for (SynsetChunk chunk : synsetChunks) {
+            for (int i = 0; i < chunk.count; i++) {
+                int id = chunk.ids[i];
+                if (id >= V || fieldStarts[id] >= 0)
+                    throw new IllegalArgumentException("Synset ids must be 0 through " + (V - 1)
+                                                       + ", each once; found " + id + " out of place.");
+                fieldStarts[id] = chunk.fieldStarts[i];
+                fieldEnds[id] = chunk.fieldEnds[i];
+            }
+        }
+        int[] synsetOffsets = new int[V + 1];
+        for (int v = 0; v < V; v++) {
+            synsetOffsets[v + 1] = synsetOffsets[v] + fieldEnds[v] - fieldStarts[v];
+        }
+        byte[] synsetBytes = new byte[synsetOffsets[V]];
+        ByteBuffer view = synsetText.duplicate();
+        for (int v = 0; v < V; v++) {
+            view.position(fieldStarts[v]);
+            view.get(synsetBytes, synsetOffsets[v], synsetOffsets[v + 1] - synsetOffsets[v]);
+        }
+
+        // Noun dictionary: sort every (noun, synset) occurrence, then merge equal nouns
+        int occurrences = 0;
+        for (SynsetChunk chunk : synsetChunks) {
+            occurrences += chunk.nouns;
+        }
+        final int[] nounStarts = new int[occurrences];
+        final int[] nounEnds = new int[occurrences];
+        final int[] nounSynsets = new int[occurrences];
+        int k = 0;
+        for (SynsetChunk chunk : synsetChunks) {
+            System.arraycopy(chunk.nounStarts, 0, nounStarts, k, chunk.nouns);
+            System.arraycopy(chunk.nounEnds, 0, nounEnds, k, chunk.nouns);
+            System.arraycopy(chunk.nounSynsets, 0, nounSynsets, k, chunk.nouns);
+            k += chunk.nouns;
+        }
+        // Most comparisons are settled by the first 8 bytes, packed into a long
+        long[] prefixes = new long[occurrences];
+        int[] order = new int[occurrences];
+        for (int i = 0; i < occurrences; i++) {
+            prefixes[i] = prefix(synsetText, nounStarts[i], nounEnds[i]);
+            order[i] = i;
+        }
+        ByteBuffer text = synsetText;
+        new Occurrences(prefixes, text, nounStarts, nounEnds, nounSynsets).sort(order, 0, occurrences);
+        boolean[] startsNoun = new boolean[occurrences];
+        int nounCount = 0;
+        int nounByteCount = 0;
+        for (int i = 0; i < occurrences; i++) {
+            int o = order[i];
+            int previous = i > 0 ? order[i - 1] : -1;
+            if (i == 0 || prefixes[previous] != prefixes[o]
+                || compareSpans(text, nounStarts[previous], nounEnds[previous], nounStarts[o], nounEnds[o]) != 0) {
+                startsNoun[i] = true;
+                nounCount++;
+                nounByteCount += nounEnds[o] - nounStarts[o];
+            }
+        }
+        int[] nounOffsets = new int[nounCount + 1];
+        int[] nounIdOffsets = new int[nounCount + 1];
+        int[] nounIds = new int[occurrences];
+        byte[] nounBytes = new byte[nounByteCount];
+        int noun = -1;
+        int idCount = 0;
+        for (int i = 0; i < occurrences; i++) {
+            int o = order[i];
+            boolean sameNoun = !startsNoun[i];
+            if (!sameNoun) {
+                noun++;
+                int length = nounEnds[o] - nounStarts[o];
+                nounOffsets[noun + 1] = nounOffsets[noun] + length;
+                view.position(nounStarts[o]);
+                view.get(nounBytes, nounOffsets[noun], length);
+                nounIdOffsets[noun] = idCount;
+            }
+            // A noun listed twice in one synset is kept once
+            if (!sameNoun || nounIds[idCount - 1] != nounSynsets[o]) {
+                nounIds[idCount++] = nounSynsets[o];
+            }
+        }
+        nounIdOffsets[nounCount] = idCount;
+
+        // Hypernym digraph
+        int edges = 0;
+        for (HypernymChunk chunk : hypernymChunks) {
+            edges += chunk.count;
+        }
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        int e = 0;
+        for (HypernymChunk chunk : hypernymChunks) {
+            for (int i = 0; i < chunk.count; i++) {
+                if (chunk.from[i] >= V || chunk.to[i] >= V)
+                    throw new IllegalArgumentException("Hypernym " + chunk.from[i] + " -> " + chunk.to[i]
+                                                       + " names a synset that does not exist.");
+            }
+            System.arraycopy(chunk.from, 0, from, e, chunk.count);
+            System.arraycopy(chunk.to, 0, to, e, chunk.count);
+            e += chunk.count;
+        }
+
+        NounIndex nouns = new NounIndex(ByteBuffer.wrap(nounBytes), IntBuffer.wrap(nounOffsets),
+                                        IntBuffer.wrap(nounIdOffsets), Arrays.copyOf(nounIds, idCount));
+        return new WordNetData(ByteBuffer.wrap(synsetBytes), IntBuffer.wrap(synsetOffsets), nouns,
+                               CsrDigraph.fromEdges(V, from, to));
+    }
+
+    // Maps a whole text file read-only; the mapping outlives the channel
+    private static ByteBuffer mapText(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(path + " is too large to map.");
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // Cuts the text into a few chunks per pool thread, each ending just after a newline
+    private static int[] chunkBounds(ByteBuffer text) {
+        int size = text.limit();
+        int count = Math.max(1, Math.min(4 * ForkJoinPool.commonPool().getParallelism(),
+                                         size / MIN_CHUNK_BYTES));
+        int[] bounds = new int[count + 1];
+        for (int c = 1; c < count; c++) {
+            int p = Math.max(bounds[c - 1], (int) ((long) size * c / count));
+            while (p < size && text.get(p - 1) != '\n') {
+                p++;
+            }
+            bounds[c] = p;
+        }
+        bounds[count] = size;
+        return bounds;
+    }
+
+    // Parses chunks [from, to), splitting the range in half across the pool
+    private static final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Chunk[] chunks;
+        private final int from, to;
+
+        ParseTask(Chunk[] chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ParseTask(chunks, from, mid), new ParseTask(chunks, mid, to));
+            } else if (to > from) {
+                chunks[from].parse();
+            }
+        }
+    }
+
+    // A run of whole lines of a mapped text file. Lines may end in "\n" or
+    // "\r\n"; empty lines are skipped.
+    private abstract static class Chunk {
+        final ByteBuffer text; // shared, so read only with absolute gets
+        private final int start;
+        private final int end;
+
+        Chunk(ByteBuffer text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        final void parse() {
+            int p = start;
+            while (p < end) {
+                int lineEnd = p;
+                while (lineEnd < end && text.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int next = lineEnd + 1;
+                if (lineEnd > p && text.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                if (lineEnd > p) {
+                    parseLine(p, lineEnd);
+                }
+                p = next;
+            }
+        }
+
+        abstract void parseLine(int start, int end);
+
+        // Position of the first c in [from, end), or end if there is none
+        final int indexOf(char c, int from, int end) {
+            while (from < end && text.get(from) != c) {
+                from++;
+            }
+            return from;
+        }
+
+        // The non-negative decimal in [from, to) of the line [start, end)
+        final int parseId(int from, int to, int start, int end) {
+            if (from == to || to - from > 9)
+                throw malformed(start, end);
+            int id = 0;
+            for (int i = from; i < to; i++) {
+                int digit = text.get(i) - '0';
+                if (digit < 0 || digit > 9)
+                    throw malformed(start, end);
+                id = id * 10 + digit;
+            }
+            return id;
+        }
+
+        final IllegalArgumentException malformed(int start, int end) {
+            byte[] line = new byte[end - start];
+            ByteBuffer view = text.duplicate();
+            view.position(start);
+            view.get(line);
+            return new IllegalArgumentException("Malformed line: " + new String(line, StandardCharsets.UTF_8));
+        }
+    }
+
+    // The synsets on a chunk's lines, and every noun occurrence in them, as
+    // positions in the text
+    private static final class SynsetChunk extends Chunk {
+        private int count;
+        private int[] ids = new int[64];
+        private int[] fieldStarts = new int[64];
+        private int[] fieldEnds = new int[64];
+        private int nouns;
+        private int[] nounStarts = new int[64];
+        private int[] nounEnds = new int[64];
+        private int[] nounSynsets = new int[64];
+
+        SynsetChunk(ByteBuffer text, int start, int end) {
+            super(text, start, end);
+        }
+
+        @Override
+        void parseLine(int start, int end) {
+            int comma = indexOf(',', start, end);
+            if (comma == end)
+                throw malformed(start, end);
+            int id = parseId(start, comma, start, end);
+            int fieldStart = comma + 1;
+            int fieldEnd = indexOf(',', fieldStart, end);
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * count);
+                fieldStarts = Arrays.copyOf(fieldStarts, 2 * count);
+                fieldEnds = Arrays.copyOf(fieldEnds, 2 * count);
+            }
+            ids[count] = id;
+            fieldStarts[count] = fieldStart;
+            fieldEnds[count] = fieldEnd;
+            count++;
+
+            // The nouns are separated by spaces
+            int p = fieldStart;
+            while (p < fieldEnd) {
+                int q = indexOf(' ', p, fieldEnd);
+                if (q > p) {
+                    if (nouns == nounStarts.length) {
+                        nounStarts = Arrays.copyOf(nounStarts, 2 * nouns);
+                        nounEnds = Arrays.copyOf(nounEnds, 2 * nouns);
+                        nounSynsets = Arrays.copyOf(nounSynsets, 2 * nouns);
+                    }
+                    nounStarts[nouns] = p;
+                    nounEnds[nouns] = q;
+                    nounSynsets[nouns] = id;
+                    nouns++;
+                }
+                p = q + 1;
+            }
+        }
+    }
+
+    // The edges on a chunk's lines
+    private static final class HypernymChunk extends Chunk {
+        private int count;
+        private int[] from = new int[64];
+        private int[] to = new int[64];
+
+        HypernymChunk(ByteBuffer text, int start, int end) {
+            super(text, start, end);
+        }
+
+        // Empty fields at the end of the line, as in "1,0,", are ignored, as
+        // String.split(",") ignores them
+        @Override
+        void parseLine(int start, int end) {
+            int last = end;
+            while (last > start && text.get(last - 1) == ',') {
+                last--;
+            }
+            int comma = indexOf(',', start, last);
+            int v = parseId(start, comma, start, end);
+            while (comma < last) {
+                int fieldStart = comma + 1;
+                comma = indexOf(',', fieldStart, last);
+                int w = parseId(fieldStart, comma, start, end);
+                if (count == from.length) {
+                    from = Arrays.copyOf(from, 2 * count);
+                    to = Arrays.copyOf(to, 2 * count);
+                }
+                from[count] = v;
+                to[count] = w;
+                count++;
+            }
+        }
+    }
+
+    // The first 8 bytes of text[start, end), big-endian and zero-padded, so
+    // that unsigned order of prefixes agrees with unsigned order of the spans
+    private static long prefix(ByteBuffer text, int start, int end) {
+        long prefix = 0;
+        for (int i = 0; i < 8; i++) {
+            prefix = prefix << 8 | (start + i < end ? text.get(start + i) & 0xFF : 0);
+        }
+        return prefix;
+    }
+
+    // The (noun, synset) occurrences found by the parser, sorted as plain int
+    // positions so that no occurrence is boxed: by noun bytes, unsigned, and
+    // then by synset id
+    private static final class Occurrences {
+        private final long[] prefixes;
+        private final ByteBuffer text;
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] synsets;
+
+        Occurrences(long[] prefixes, ByteBuffer text, int[] starts, int[] ends, int[] synsets) {
+            this.prefixes = prefixes;
+            this.text = text;
+            this.starts = starts;
+            this.ends = ends;
+            this.synsets = synsets;
+        }
+
+        int compare(int i, int j) {
+            int cmp = Long.compareUnsigned(prefixes[i], prefixes[j]);
+            if (cmp == 0) {
+                cmp = compareSpans(text, starts[i], ends[i], starts[j], ends[j]);
+            }
+            return cmp != 0 ? cmp : Integer.compare(synsets[i], synsets[j]);
+        }
+
+        // Sorts order[lo, hi) with a three-way quicksort, recursing into the
+        // smaller side so the stack stays logarithmic, and insertion sort on
+        // short ranges
+        void sort(int[] order, int lo, int hi) {
+            while (hi - lo > 16) {
+                int pivot = medianOfThree(order[lo], order[lo + (hi - lo) / 2], order[hi - 1]);
+                int lt = lo;
+                int gt = hi;
+                int i = lo;
+                while (i < gt) {
+                    int cmp = compare(order[i], pivot);
+                    if (cmp < 0) {
+                        swap(order, lt++, i++);
+                    } else if (cmp > 0) {
+                        swap(order, i, --gt);
+                    } else {
+                        i++;
+                    }
+                }
+                if (lt - lo < hi - gt) {
+                    sort(order, lo, lt);
+                    lo = gt;
+                } else {
+                    sort(order, gt, hi);
+                    hi = lt;
+                }
+            }
+            for (int i = lo + 1; i < hi; i++) {
+                int o = order[i];
+                int j = i;
+                while (j > lo && compare(order[j - 1], o) > 0) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = o;
+            }
+        }
+
+        private int medianOfThree(int a, int b, int c) {
+            if (compare(a, b) > 0) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            if (compare(b, c) <= 0) {
+                return b;
+            }
+            return compare(a, c) > 0 ? a : c;
+        }
+
+        private static void swap(int[] order, int i, int j) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+    }
+
+    // Compares text[aStart, aEnd) with text[bStart, bEnd) as unsigned bytes
+    private static int compareSpans(ByteBuffer text, int aStart, int aEnd, int bStart, int bEnd) {
+        int limit = Math.min(aEnd - aStart, bEnd - bStart);
+        for (int i = 0; i < limit; i++) {
+            int cmp = (text.get(aStart + i) & 0xFF) - (text.get(bStart + i) & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return (aEnd - aStart) - (bEnd - bStart);
+    }
+
+    // Memory-maps a snapshot written by write(Path). Only the header and
+    // the file size are checked; the contents are trusted.
+    public static WordNetData open(Path path) throws IOException {
+        if (path == null)
+            throw new IllegalArgumentException("Path cannot be null.");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IllegalArgumentException(path + " is not a WordNet snapshot.");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IllegalArgumentException(path + " is not a WordNet snapshot.");
+            int V = header.getInt(8);
+            int E = header.getInt(12);
+            int nounCount = header.getInt(16);
+            int nounIdCount = header.getInt(20);
+            int synsetByteCount = header.getInt(24);
+            int nounByteCount = header.getInt(28);
+
+            long size = HEADER_BYTES + 4L * (V + 1) + 8L * (nounCount + 1) + 4L * nounIdCount
+                        + 4L * (V + 1 + E) + synsetByteCount + nounByteCount;
+            if (channel.size() != size)
+                throw new IllegalArgumentException(path + " is truncated or corrupt.");
+
+            // A mapping stays valid after its channel is closed
+            long position = HEADER_BYTES;
+            IntBuffer synsetOffsets = map(channel, position, 4L * (V + 1)).asIntBuffer();
+            position += 4L * (V + 1);
+            IntBuffer nounOffsets = map(channel, position, 4L * (nounCount + 1)).asIntBuffer();
+            position += 4L * (nounCount + 1);
+            IntBuffer nounIdOffsets = map(channel, position, 4L * (nounCount + 1)).asIntBuffer();
+            position += 4L * (nounCount + 1);
+            int[] nounIds = new int[nounIdCount];
+            map(channel, position, 4L * nounIdCount).asIntBuffer().get(nounIds);
+            position += 4L * nounIdCount;
+            int[] offsets = new int[V + 1];
+            map(channel, position, 4L * (V + 1)).asIntBuffer().get(offsets);
+            position += 4L * (V + 1);
+            int[] targets = new int[E];
+            map(channel, position, 4L * E).asIntBuffer().get(targets);
+            position += 4L * E;
+            ByteBuffer synsetBytes = map(channel, position, synsetByteCount);
+            position += synsetByteCount;
+            ByteBuffer nounBytes = map(channel, position, nounByteCount);
+            return new WordNetData(synsetBytes, synsetOffsets,
+                                   new NounIndex(nounBytes, nounOffsets, nounIdOffsets, nounIds),
+                                   new CsrDigraph(offsets, targets));
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Snapshot section of " + size + " bytes is too large to map.");
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Writes everything as a snapshot for open(Path)
+    public void write(Path path) throws IOException {
+        if (path == null)
+            throw new IllegalArgumentException("Path cannot be null.");
+        int V = V();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            chunk.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(digraph.E())
+                 .putInt(nouns.size()).putInt(nouns.synsetIds().length)
+                 .putInt(synsetBytes.limit()).putInt(nouns.names().limit());
+            putInts(channel, chunk, synsetOffsets);
+            putInts(channel, chunk, nouns.nameOffsets());
+            putInts(channel, chunk, nouns.idOffsets());
+            putInts(channel, chunk, IntBuffer.wrap(nouns.synsetIds()));
+            for (int v = 0; v <= V; v++) {
+                ensureRoom(channel, chunk, 4);
+                chunk.putInt(v < V ? digraph.first(v) : digraph.E());
+            }
+            for (int e = 0; e < digraph.E(); e++) {
+                ensureRoom(channel, chunk, 4);
+                chunk.putInt(digraph.target(e));
+            }
+            flush(channel, chunk);
+            putBytes(channel, synsetBytes);
+            putBytes(channel, nouns.names());
+        }
+    }
+
+    private static void putInts(FileChannel channel, ByteBuffer chunk, IntBuffer ints) throws IOException {
+        for (int i = 0; i < ints.limit(); i++) {
+            ensureRoom(channel, chunk, 4);
+            chunk.putInt(ints.get(i));
+        }
+    }
+
+    private static void putBytes(FileChannel channel, ByteBuffer bytes) throws IOException {
+        ByteBuffer all = bytes.duplicate();
+        all.clear();
+        while (all.hasRemaining()) {
+            channel.write(all);
+        }
+    }
+
+    // Flushes the chunk to the channel if it has fewer than the given bytes free.
+    private static void ensureRoom(FileChannel channel, ByteBuffer chunk, int room) throws IOException {
+        if (chunk.remaining() < room) {
+            flush(channel, chunk);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    // number of synsets
+    public int V() {
+        return synsetOffsets.limit() - 1;
+    }
+
+    // the noun field of synset v: its nouns, separated by spaces
+    public String synset(int v) {
+        int start = synsetOffsets.get(v);
+        byte[] utf8 = new byte[synsetOffsets.get(v + 1) - start];
+        ByteBuffer view = synsetBytes.duplicate();
+        view.position(start);
+        view.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // the hypernym digraph, with an edge from each synset to each of its parents
+    public CsrDigraph digraph() {
+        return digraph;
+    }
+
+    // the noun dictionary
+    public NounIndex nouns() {
+        return nouns;
+    }
+
+    // Parses the text files, writes a snapshot, maps it back, and checks that
+    // both agree; then times each way of building a WordNet.
+    // Usage: java WordNetData synsets.txt hypernyms.txt [snapshot]
+    public static void main(String[] args) throws IOException {
+        Path snapshot;
+        if (args.length > 2) {
+            snapshot = Paths.get(args[2]);
+        } else {
+            File file = File.createTempFile("wordnet", ".snapshot");
+            file.deleteOnExit();
+            snapshot = file.toPath();
+        }
+        WordNetData parsed = parse(Paths.get(args[0]), Paths.get(args[1]));
+        parsed.write(snapshot);
+        WordNetData mapped = open(snapshot);
+        StdOut.printf("V = %d, E = %d, %d nouns in %d (noun, synset) pairs, snapshot %.1f MB\n",
+                      parsed.V(), parsed.digraph().E(), parsed.nouns().size(),
+                      parsed.nouns().synsetIds().length,
+                      snapshot.toFile().length() / 1e6);
+
+        boolean same = parsed.V() == mapped.V() && parsed.nouns().size() == mapped.nouns().size()
+                       && parsed.digraph().E() == mapped.digraph().E();
+        for (int v = 0; same && v < parsed.V(); v++) {
+            same = parsed.synset(v).equals(mapped.synset(v))
+                   && parsed.digraph().first(v) == mapped.digraph().first(v);
+        }
+        for (int e = 0; same && e < parsed.digraph().E(); e++) {
+            same = parsed.digraph().target(e) == mapped.digraph().target(e);
+        }
+        for (int i = 0; same && i < parsed.nouns().size(); i++) {
+            same = parsed.nouns().noun(i).equals(mapped.nouns().noun(i))
+                   && parsed.nouns().end(i) == mapped.nouns().end(i);
+        }
+        StdOut.println(same ? "snapshot matches the text files" : "SNAPSHOT DIFFERS"); // Expected: matches
+
+        // Best of several rounds, which also lets the JIT warm up
+        double parseMillis = Double.MAX_VALUE;
+        double openMillis = Double.MAX_VALUE;
+        double textMillis = Double.MAX_VALUE;
+        double snapshotMillis = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            parse(Paths.get(args[0]), Paths.get(args[1]));
+            parseMillis = Math.min(parseMillis, (System.nanoTime() - start) / 1e6);
+            start = System.nanoTime();
+            open(snapshot);
+            openMillis = Math.min(openMillis, (System.nanoTime() - start) / 1e6);
+            start = System.nanoTime();
+            new WordNet(args[0], args[1]);
+            textMillis = Math.min(textMillis, (System.nanoTime() - start) / 1e6);
+            start = System.nanoTime();
+            WordNet.openSnapshot(snapshot.toString());
+            snapshotMillis = Math.min(snapshotMillis, (System.nanoTime() - start) / 1e6);
+        }
+        StdOut.printf("parse %.1f ms, open snapshot %.1f ms; WordNet from text %.1f ms, "
+                      + "from snapshot %.1f ms (%d pool threads)\n", parseMillis, openMillis,
+                      textMillis, snapshotMillis, ForkJoinPool.commonPool().getParallelism());
+    }
+}
@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// A Chase-Lev work-stealing deque. One owner thread adds and removes at the
+// back without locks or, except for the last item, any atomic update; any
+// number of other threads steal from the front with a single compare-and-set.
+//
+// It is not a general Deque. The owner's operations are addLast and
+// removeLast; the thieves' operation is removeFirst. size, isEmpty and
+// iterator are safe from any thread. There is no addFirst: the front index may
+// only ever grow, or a thief could take an item twice.
+public class WorkStealingDeque<Item> implements Iterable<Item> {
+    private final AtomicLong top = new AtomicLong();   // next index to steal
+    private volatile long bottom;                      // next index the owner pushes to
+    private volatile AtomicReferenceArray<Item> items; // capacity is a power of two
+
+    // construct an empty deque
+    public WorkStealingDeque() {
+        items = new AtomicReferenceArray<>(16);
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the deque (a snapshot when others are active)
+    public int size() {
+        long size = bottom - top.get();
+        return size < 0 ? 0 : (int) size;
+    }
+
+    // add the item to the back (owner only)
+    public void addLast(Item item) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        long b = bottom;
+        long t = top.get();
+        AtomicReferenceArray<Item> a = items;
+        if (b - t >= a.length()) {
+            a = grow(a, t, b);
+            items = a;
+        }
+        a.set((int) b & (a.length() - 1), item);
+        bottom = b + 1; // publishes the item to thieves
+    }
+
+    // remove and return the item from the back (owner only)
+    public Item removeLast() {
+        long b = bottom - 1;
+        AtomicReferenceArray<Item> a = items;
+        bottom = b; // claim the slot before looking at top
+        long t = top.get();
+        if (t > b) {
+            bottom = b + 1;
+            throw new NoSuchElementException("Deque is empty");
+        }
+        int index = (int) b & (a.length() - 1);
+        Item item = a.get(index);
+        if (t == b) {
+            // Last item: race the thieves for it
+            boolean won = top.compareAndSet(t, t + 1);
+            bottom = b + 1;
+            if (!won) throw new NoSuchElementException("Deque is empty");
+        }
+        a.set(index, null); // Avoid loitering; no thief can still be reading this slot
+        return item;
+    }
+
+    // remove and return the item from the front (any thread)
+    public Item removeFirst() {
+        while (true) {
+            long t = top.get();
+            long b = bottom;
+            if (t >= b) throw new NoSuchElementException("Deque is empty");
+            AtomicReferenceArray<Item> a = items;
+            Item item = a.get((int) t & (a.length() - 1));
+            if (item != null && top.compareAndSet(t, t + 1)) {
+                return item;
+            }
+            // Lost the race to another thief or the owner; try again
+        }
+    }
+
+    // Copies [t, b) into an array twice the size. The old array is left intact
+    // for thieves that are still reading it.
+    private AtomicReferenceArray<Item> grow(AtomicReferenceArray<Item> a, long t, long b) {
+        AtomicReferenceArray<Item> bigger = new AtomicReferenceArray<>(2 * a.length());
+        for (long i = t; i < b; i++) {
+            bigger.set((int) i & (bigger.length() - 1), a.get((int) i & (a.length() - 1)));
+        }
+        return bigger;
+    }
+
+    // return an iterator over a snapshot of the items, front to back
+    public Iterator<Item> iterator() {
+        List<Item> snapshot = new ArrayList<>();
+        long t = top.get();
+        long b = bottom;
+        AtomicReferenceArray<Item> a = items;
+        for (long i = t; i < b; i++) {
+            Item item = a.get((int) i & (a.length() - 1));
+            if (item != null) snapshot.add(item);
+        }
+        return snapshot.iterator();
+    }
+
+    // stress test: every item pushed must be taken exactly once, and the
+    // results must fit a sequential history. The owner pops right after each
+    // push, so it must get back the item it just pushed (LIFO) unless a thief
+    // took that item first. Items sit in push order and the front only moves
+    // forward, so each thief must see increasing items (FIFO).
+    public static void main(String[] args) throws InterruptedException {
+        final int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        final int thieves = Math.max(3, Runtime.getRuntime().availableProcessors() - 1);
+        final WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        final AtomicInteger[] taken = new AtomicInteger[n];
+        for (int i = 0; i < n; i++) taken[i] = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        final boolean[] thiefOrdered = new boolean[thieves];
+
+        Thread[] workers = new Thread[thieves];
+        for (int w = 0; w < thieves; w++) {
+            final int id = w;
+            workers[w] = new Thread(new Runnable() {
+                public void run() {
+                    boolean inOrder = true;
+                    int last = -1;
+                    while (done.get() == 0 || !deque.isEmpty()) {
+                        try {
+                            int item = deque.removeFirst();
+                            inOrder &= item > last;
+                            last = item;
+                            taken[item].incrementAndGet();
+                        } catch (NoSuchElementException e) {
+                            Thread.yield();
+                        }
+                    }
+                    thiefOrdered[id] = inOrder;
+                }
+            });
+            workers[w].start();
+        }
+
+        // The owner pushes everything and pops about a third of it back. A
+        // thief can only have taken item i if it was the last one left, so
+        // the pop either returns i or finds the deque empty.
+        boolean ownerLifo = true;
+        for (int i = 0; i < n; i++) {
+            deque.addLast(i);
+            if (i % 3 == 0) {
+                try {
+                    int item = deque.removeLast();
+                    ownerLifo &= item == i;
+                    taken[item].incrementAndGet();
+                } catch (NoSuchElementException e) {
+                    // thieves emptied it first
+                }
+            }
+        }
+        done.set(1);
+        for (Thread worker : workers) worker.join();
+
+        int lost = 0;
+        int duplicated = 0;
+        for (int i = 0; i < n; i++) {
+            if (taken[i].get() == 0) lost++;
+            if (taken[i].get() > 1) duplicated++;
+        }
+        System.out.println("items = " + n + ", thieves = " + thieves
+                           + ", lost = " + lost + ", duplicated = " + duplicated); // Expected: 0, 0
+        boolean thievesFifo = true;
+        for (boolean ordered : thiefOrdered) thievesFifo &= ordered;
+        System.out.println("owner LIFO: " + ownerLifo + ", thieves FIFO: " + thievesFifo); // Expected: true, true
+
+        WorkStealingDeque<String> small = new WorkStealingDeque<>();
+        small.addLast("A");
+        small.addLast("B");
+        small.addLast("C");
+        System.out.println(small.removeFirst()); // A
+        System.out.println(small.removeLast());  // C
+        for (String s : small) {
+            System.out.println(s); // B
+        }
+    }
+}